@@ -0,0 +1,84 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/*
+ *   SimState over primitive arrays indexed by entity id (see Registry): no boxing and no
+ *   hashing on the hot path.
+ *
+ *   Elements are read with acquire and written with release semantics through VarHandles,
+ *   the same visibility a ConcurrentHashMap get/put gives, without a full fence per write.
+ *   The arrays grow when an entity beyond their length is first set, which happens while
+ *   the config is loaded, before any simulation threads run; growing copies the arrays under
+ *   this object's lock and then publishes the new ones.
+ */
+public class ArraySimState implements SimState {
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private volatile int[] trainIndex = new int[0];
+    private volatile byte[] trainDirection = new byte[0];
+    private volatile int[] pIndex = new int[0];
+
+    @Override
+    public int trainIndex(Train t) {
+        int[] a = trainIndex;
+        return t.id() < a.length ? (int) INTS.getAcquire(a, t.id()) : 0;
+    }
+
+    @Override
+    public void setTrainIndex(Train t, int index) {
+        if(t.id() >= trainIndex.length) growTrains(t.id());
+        INTS.setRelease(trainIndex, t.id(), index);
+    }
+
+    @Override
+    public int trainDirection(Train t) {
+        byte[] a = trainDirection;
+        return t.id() < a.length ? (byte) BYTES.getAcquire(a, t.id()) : 0;
+    }
+
+    @Override
+    public void setTrainDirection(Train t, int direction) {
+        if(t.id() >= trainDirection.length) growTrains(t.id());
+        BYTES.setRelease(trainDirection, t.id(), (byte) direction);
+    }
+
+    @Override
+    public int passengerIndex(Passenger p) {
+        int[] a = pIndex;
+        return p.id() < a.length ? (int) INTS.getAcquire(a, p.id()) : 0;
+    }
+
+    @Override
+    public void setPassengerIndex(Passenger p, int index) {
+        if(p.id() >= pIndex.length) growPassengers(p.id());
+        INTS.setRelease(pIndex, p.id(), index);
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(trainIndex, 0);
+        Arrays.fill(trainDirection, (byte) 0);
+        Arrays.fill(pIndex, 0);
+    }
+
+    @Override
+    public void reserve(int trains, int passengers) {
+        if(trains > 0) growTrains(Train.count() + trains - 1);
+        if(passengers > 0) growPassengers(Passenger.count() + passengers - 1);
+    }
+
+    private synchronized void growTrains(int id) {
+        if(id < trainIndex.length) return;
+        int length = Math.max(Math.max(Train.count(), id + 1), trainIndex.length * 2);
+        trainIndex = Arrays.copyOf(trainIndex, length);
+        trainDirection = Arrays.copyOf(trainDirection, length);
+    }
+
+    private synchronized void growPassengers(int id) {
+        if(id < pIndex.length) return;
+        pIndex = Arrays.copyOf(pIndex, Math.max(Math.max(Passenger.count(), id + 1), pIndex.length * 2));
+    }
+}
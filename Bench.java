@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/* small timing helpers and the workload shared by the *Bench mains */
+public class Bench {
+
+    public interface Op {
+        Object run(int i);
+    }
+
+    // consumed results, so the JIT cannot drop the measured calls
+    private static volatile int sink;
+
+    /* mean nanoseconds per call of op over iterations calls, after an equally long warmup */
+    public static double nsPerOp(int iterations, Op op) {
+        consume(iterations, op);
+        long start = System.nanoTime();
+        consume(iterations, op);
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static void consume(int iterations, Op op) {
+        int nulls = 0;
+        for(int i = 0; i < iterations; i++) {
+            if(op.run(i) == null) nulls++;
+        }
+        sink += nulls;
+    }
+
+    /* lines disjoint lines; passenger p shuttles legs times between stations 0 and stations / 2 of line p % lines */
+    public static MBTA network(SimState state, int lines, int stations, int passengers, int legs) {
+        MBTA mbta = new MBTA(state);
+        for(int l = 0; l < lines; l++) {
+            List<String> names = new ArrayList<>();
+            for(int s = 0; s < stations; s++) names.add("L" + l + "S" + s);
+            mbta.addLine("line" + l, names);
+        }
+        for(int p = 0; p < passengers; p++) {
+            int l = p % lines;
+            List<String> stops = new ArrayList<>(legs + 1);
+            for(int i = 0; i <= legs; i++) stops.add("L" + l + "S" + (i % 2 == 0 ? 0 : stations / 2));
+            mbta.addJourney("P" + p, stops);
+        }
+        return mbta;
+    }
+}
@@ -0,0 +1,193 @@
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/*
+ *   The workloads of the JMH suite in jmh/bench, and a diff of its results.
+ *
+ *   Each workload sets up its fixture and returns the op a benchmark times: one call for the
+ *   mbta.* workloads, 500k appends for log.append, the whole generated log for logjson and
+ *   verify, a whole run for sim.*. JMH cannot load benchmarks from the default package, nor
+ *   can code in a package name the classes here, so the benchmarks get their ops by name
+ *   through setUp.
+ *
+ *   gradle jmh writes JMH's results to build/jmh-results.json. --diff compares two such files
+ *   and flags each benchmark that changed by more than the threshold (10% by default) and by
+ *   more than the two runs' errors combined, exiting with 1 if any got slower.
+ *
+ *   usage: java Benchmarks --diff <old.json> <new.json> [threshold %]
+ */
+public class Benchmarks {
+
+    /* a fresh fixture for the named workload, as the op a benchmark calls with its invocation count */
+    public static IntFunction<Object> setUp(String workload) {
+        Supplier<Bench.Op> setup = workloads().get(workload);
+        if(setup == null) throw new RuntimeException("Unknown workload: " + workload);
+        return setup.get()::run;
+    }
+
+    private static Map<String, Supplier<Bench.Op>> workloads() {
+        Map<String, Supplier<Bench.Op>> workloads = new LinkedHashMap<>();
+        workloads.put("mbta.getTrainAtSta", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 16, 10, 1_000, 2);
+            Station[] stations = stations(mbta);
+            return i -> mbta.getTrainAtSta(stations[i % stations.length]);
+        });
+        workloads.put("mbta.NextTrainToBoard", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 16, 10, 1_000, 2);
+            Passenger[] passengers = mbta.journeys.keySet().toArray(new Passenger[0]);
+            Station[] starts = new Station[passengers.length];
+            for(int p = 0; p < passengers.length; p++) starts[p] = mbta.getPCurrStation(passengers[p]);
+            return i -> mbta.NextTrainToBoard(passengers[i % passengers.length], starts[i % passengers.length]);
+        });
+        workloads.put("mbta.isRightTrain", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 16, 10, 1_000, 2);
+            Passenger[] passengers = mbta.journeys.keySet().toArray(new Passenger[0]);
+            Train[] lines = new Train[passengers.length];
+            for(int p = 0; p < passengers.length; p++) {
+                lines[p] = mbta.NextTrainToBoard(passengers[p], mbta.getPCurrStation(passengers[p]));
+            }
+            return i -> mbta.isRightTrain(lines[i % lines.length], passengers[i % passengers.length]);
+        });
+        workloads.put("mbta.moveTrain", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 16, 10, 0, 0);
+            Train[] trains = mbta.lines.keySet().toArray(new Train[0]);
+            return i -> {
+                Train t = trains[i % trains.length];
+                mbta.moveTrain(t, mbta.getTCurrStation(t), mbta.getTNextStation(t));
+                return t;
+            };
+        });
+        workloads.put("log.append", () -> {
+            Log log = new Log(false);
+            Train t = Train.make("line0");
+            Station a = Station.make("L0S0"), b = Station.make("L0S1");
+            int events = 500_000;
+            /* appends, drains into the event list and stops the writer */
+            return i -> {
+                for(int k = 0; k < events; k++) log.train_moves(t, a, b);
+                log.close();
+                return log;
+            };
+        });
+        workloads.put("logjson.roundTrip", () -> {
+            Log log = new Log(generated());
+            return i -> LogJson.fromJson(new LogJson(log).toJson()).toLog();
+        });
+        workloads.put("verify.generated", () -> {
+            List<Event> events = generated();
+            MBTA mbta = Bench.network(SimState.maps(), 8, 10, 1_000, GENERATED_LEGS);
+            return i -> {
+                Verify.verify(mbta, events.iterator());
+                return mbta;
+            };
+        });
+        workloads.put("sim.discrete", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 8, 10, 1_000, 20);
+            return i -> {
+                Log log = new Log(false);
+                Sim.run_sim(mbta, log, Sim.Mode.DISCRETE);
+                log.close();
+                return log;
+            };
+        });
+        workloads.put("sim.threads", () -> {
+            MBTA mbta = Bench.network(SimState.maps(), 4, 6, 50, 4);
+            return i -> {
+                Log log = new Log(false);
+                Sim.run_sim(mbta, log, Sim.Mode.PLATFORM, SimClock.logical());
+                log.close();
+                Sim.clearThreads();
+                return log;
+            };
+        });
+        return workloads;
+    }
+
+
+    private static final int GENERATED_LEGS = 50;
+    private static List<Event> generated;
+
+    /* the log of a DiscreteSim run over Bench.network(8, 10, 1000, GENERATED_LEGS), made once */
+    private static List<Event> generated() {
+        if(generated == null) {
+            Log log = new Log(false);
+            DiscreteSim.run(Bench.network(SimState.maps(), 8, 10, 1_000, GENERATED_LEGS), log);
+            log.close();
+            generated = log.events();
+        }
+        return generated;
+    }
+
+    private static Station[] stations(MBTA mbta) {
+        Set<Station> all = new LinkedHashSet<>();
+        for(List<Station> line : mbta.lines.values()) all.addAll(line);
+        return all.toArray(new Station[0]);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3 || !args[0].equals("--diff")) usage();
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        System.exit(diff(new File(args[1]), new File(args[2]), threshold) ? 1 : 0);
+    }
+
+    /* prints the comparison of two result files; true if any benchmark got slower */
+    private static boolean diff(File before, File after, double threshold) throws IOException {
+        Map<String, JsonObject> old = load(before), now = load(after);
+        Set<String> names = new LinkedHashSet<>(old.keySet());
+        names.addAll(now.keySet());
+        boolean slower = false;
+        System.out.printf("%-24s %14s %14s %9s%n", "benchmark", "before", "after", "change");
+        for(String name : names) {
+            JsonObject o = old.get(name), n = now.get(name);
+            if(o == null || n == null) {
+                System.out.printf("%-24s %s%n", name, o == null ? "only in " + after : "only in " + before);
+                continue;
+            }
+            double a = o.get("score").getAsDouble(), b = n.get("score").getAsDouble();
+            double change = (b - a) / a * 100;
+            /* a change must clear both the threshold and the noise of the two runs */
+            boolean real = Math.abs(b - a) > error(o) + error(n);
+            String verdict = "";
+            if(real && change > threshold) {
+                verdict = "SLOWER";
+                slower = true;
+            } else if(real && change < -threshold) {
+                verdict = "faster";
+            }
+            System.out.printf("%-24s %14.1f %14.1f %+8.1f%%  %s %s%n", name, a, b, change, n.get("scoreUnit").getAsString(), verdict);
+        }
+        return slower;
+    }
+
+    /* JMH's primary metric for each benchmark in a result file, by workload */
+    private static Map<String, JsonObject> load(File f) throws IOException {
+        Map<String, JsonObject> byName = new LinkedHashMap<>();
+        try(Reader r = new BufferedReader(new FileReader(f))) {
+            for(JsonElement e : JsonParser.parseReader(r).getAsJsonArray()) {
+                JsonObject run = e.getAsJsonObject();
+                JsonObject params = run.getAsJsonObject("params");
+                String name = params != null && params.has("workload")
+                        ? params.get("workload").getAsString() : run.get("benchmark").getAsString();
+                byName.put(name, run.getAsJsonObject("primaryMetric"));
+            }
+        }
+        return byName;
+    }
+
+    /* JMH reports NaN when a run has too few iterations to tell */
+    private static double error(JsonObject metric) {
+        double error = metric.get("scoreError").getAsDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static void usage() {
+        System.out.println("usage: java Benchmarks --diff <old.json> <new.json> [threshold %]");
+        System.exit(1);
+    }
+}
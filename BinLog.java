@@ -0,0 +1,313 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ *   Compact binary event log, an alternative to log.json.
+ *
+ *   A file starts with MAGIC and VERSION, then a string table: the train names, the station
+ *   names and the passenger names, each as a count followed by length-prefixed UTF-8 strings.
+ *   Every event after that is a fixed-width record of four ints: the event type and three
+ *   indexes into the string table, in the same order as the event's toStringList
+ *   (train, from, to for a move; passenger, train, station for a board or deboard). A state
+ *   digest (DigestEvent) has its high and low 32 bits and a 0 in place of the indexes.
+ *
+ *   The string table must be known before the first record, so a writer is given every
+ *   entity up front, normally from the MBTA config.
+ *
+ *   usage: java BinLog tojson <log.bin> <log.json>
+ *          java BinLog fromjson <log.json> <log.bin>
+ */
+public class BinLog {
+
+    public static final int MAGIC = 0x4D424C47; // "MBLG"
+    public static final int VERSION = 1;
+    public static final int RECORD_BYTES = 16;
+
+    public static final int MOVE = 0;
+    public static final int BOARD = 1;
+    public static final int DEBOARD = 2;
+    public static final int DIGEST = 3;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    public static LogSink writer(Path file, MBTA mbta) throws IOException {
+        Set<Station> stations = new LinkedHashSet<>();
+        mbta.lines.values().forEach(stations::addAll);
+        mbta.journeys.values().forEach(stations::addAll);
+        return writer(file, mbta.lines.keySet(), stations, mbta.journeys.keySet());
+    }
+
+    public static LogSink writer(Path file, Collection<Train> trains, Collection<Station> stations,
+                                 Collection<Passenger> passengers) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Map<Train, Integer> trainIds = ids(trains);
+        Map<Station, Integer> stationIds = ids(stations);
+        Map<Passenger, Integer> passengerIds = ids(passengers);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeNames(out, trains);
+        writeNames(out, stations);
+        writeNames(out, passengers);
+        writeFully(ch, ByteBuffer.wrap(header.toByteArray()));
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        return new LogSink() {
+            @Override
+            public void write(List<Event> batch) throws IOException {
+                for(Event e : batch) {
+                    if(buf.remaining() < RECORD_BYTES) {
+                        buf.flip();
+                        writeFully(ch, buf);
+                        buf.clear();
+                    }
+                    if(e instanceof MoveEvent m) {
+                        buf.putInt(MOVE).putInt(id(trainIds, m.t)).putInt(id(stationIds, m.s1)).putInt(id(stationIds, m.s2));
+                    } else if(e instanceof BoardEvent b) {
+                        buf.putInt(BOARD).putInt(id(passengerIds, b.p)).putInt(id(trainIds, b.t)).putInt(id(stationIds, b.s));
+                    } else if(e instanceof DeboardEvent d) {
+                        buf.putInt(DEBOARD).putInt(id(passengerIds, d.p)).putInt(id(trainIds, d.t)).putInt(id(stationIds, d.s));
+                    } else if(e instanceof DigestEvent g) {
+                        buf.putInt(DIGEST).putInt((int) (g.digest >>> 32)).putInt((int) g.digest).putInt(0);
+                    } else {
+                        throw new RuntimeException("Don't know what to do with event kind " + e.getClass());
+                    }
+                }
+                buf.flip();
+                writeFully(ch, buf);
+                buf.clear();
+            }
+
+            @Override
+            public void close() throws IOException {
+                ch.close();
+            }
+        };
+    }
+
+    public static EventReader reader(Path file) throws IOException {
+        return new BinEvents(file);
+    }
+
+    /* true if the file starts with MAGIC */
+    public static boolean isBinary(Path file) throws IOException {
+        try(DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch(EOFException e) {
+            return false;
+        }
+    }
+
+    /* two passes over the JSON log: one to collect the string table, one to write records */
+    public static void fromJson(Path json, Path bin) throws IOException {
+        Set<Train> trains = new LinkedHashSet<>();
+        Set<Station> stations = new LinkedHashSet<>();
+        Set<Passenger> passengers = new LinkedHashSet<>();
+        try(EventReader r = LogJson.reader(Files.newBufferedReader(json))) {
+            while(r.hasNext()) {
+                Event e = r.next();
+                if(e instanceof MoveEvent m) {
+                    trains.add(m.t);
+                    stations.add(m.s1);
+                    stations.add(m.s2);
+                } else if(e instanceof BoardEvent b) {
+                    passengers.add(b.p);
+                    trains.add(b.t);
+                    stations.add(b.s);
+                } else if(e instanceof DeboardEvent d) {
+                    passengers.add(d.p);
+                    trains.add(d.t);
+                    stations.add(d.s);
+                }
+            }
+        }
+        try(EventReader r = LogJson.reader(Files.newBufferedReader(json))) {
+            copy(r, writer(bin, trains, stations, passengers));
+        }
+    }
+
+    public static void toJson(Path bin, Path json) throws IOException {
+        try(EventReader r = reader(bin)) {
+            copy(r, LogJson.writer(Files.newBufferedWriter(json)));
+        }
+    }
+
+    private static void copy(EventReader r, LogSink sink) throws IOException {
+        List<Event> batch = new ArrayList<>();
+        while(r.hasNext()) {
+            batch.add(r.next());
+            if(batch.size() == BUFFER_BYTES / RECORD_BYTES) {
+                sink.write(batch);
+                batch.clear();
+            }
+        }
+        sink.write(batch);
+        sink.close();
+    }
+
+    /* a DIGEST record's digest from its two halves */
+    static long digest(int high, int low) {
+        return (long) high << 32 | (low & 0xFFFFFFFFL);
+    }
+
+    private static <E> Map<E, Integer> ids(Collection<E> entities) {
+        Map<E, Integer> ids = new HashMap<>();
+        for(E e : entities) ids.putIfAbsent(e, ids.size());
+        return ids;
+    }
+
+    private static <E> int id(Map<E, Integer> ids, E e) {
+        Integer id = ids.get(e);
+        if(id == null) {
+            throw new RuntimeException(e + " is not in the string table");
+        }
+        return id;
+    }
+
+    private static void writeNames(DataOutputStream out, Collection<? extends Entity> entities) throws IOException {
+        out.writeInt(entities.size());
+        for(Entity e : entities) {
+            byte[] name = e.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while(buf.hasRemaining()) ch.write(buf);
+    }
+
+    /* the string table of a binary log, and where its records start */
+    record Header(List<String> trains, List<String> stations, List<String> passengers, long recordsStart) {}
+
+    static Header readHeader(Path file) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if(in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a binary log");
+            }
+            int version = in.readInt();
+            if(version != VERSION) {
+                throw new RuntimeException("Unsupported binary log version " + version);
+            }
+            long[] offset = { 8 };
+            long size = Files.size(file);
+            List<String> trains = readNames(in, offset, size);
+            List<String> stations = readNames(in, offset, size);
+            List<String> passengers = readNames(in, offset, size);
+            return new Header(trains, stations, passengers, offset[0]);
+        } catch(EOFException e) {
+            throw new RuntimeException("Truncated string table");
+        }
+    }
+
+    /* counts and lengths are checked against the size of the file before anything is allocated */
+    private static List<String> readNames(DataInputStream in, long[] offset, long size) throws IOException {
+        int count = in.readInt();
+        offset[0] += 4;
+        /* each name takes at least its 4-byte length */
+        if(count < 0 || count > (size - offset[0]) / 4) {
+            throw new RuntimeException("Bad string table: " + count + " names at byte " + (offset[0] - 4) + " of " + size);
+        }
+        List<String> names = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if(length < 0 || length > size - offset[0] - 4) {
+                throw new RuntimeException("Bad string table: a name of " + length + " bytes at byte " + offset[0] + " of " + size);
+            }
+            byte[] name = new byte[length];
+            in.readFully(name);
+            offset[0] += 4 + name.length;
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return names;
+    }
+
+    private static class BinEvents implements EventReader {
+        private final FileChannel ch;
+        private final ByteBuffer buf;
+        private final Train[] trains;
+        private final Station[] stations;
+        private final Passenger[] passengers;
+        // index of the next record, for errors
+        private long index;
+
+        private BinEvents(Path file) throws IOException {
+            Header header = readHeader(file);
+            trains = header.trains().stream().map(Train::make).toArray(Train[]::new);
+            stations = header.stations().stream().map(Station::make).toArray(Station[]::new);
+            passengers = header.passengers().stream().map(Passenger::make).toArray(Passenger[]::new);
+            ch = FileChannel.open(file, StandardOpenOption.READ);
+            ch.position(header.recordsStart());
+            buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buf.flip();
+        }
+
+        /* makes at least n bytes available in buf, unless the file ends first */
+        private boolean fill(int n) throws IOException {
+            if(buf.remaining() >= n) return true;
+            buf.compact();
+            while(buf.position() < n && ch.read(buf) >= 0) {}
+            buf.flip();
+            return buf.remaining() >= n;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                if(fill(RECORD_BYTES)) return true;
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if(buf.hasRemaining()) {
+                throw new RuntimeException("Truncated record at end of binary log");
+            }
+            return false;
+        }
+
+        @Override
+        public Event next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            int type = buf.getInt(), a = buf.getInt(), b = buf.getInt(), c = buf.getInt();
+            Event e = switch(type) {
+                case MOVE -> new MoveEvent(entity(trains, a, "train"), entity(stations, b, "station"), entity(stations, c, "station"));
+                case BOARD -> new BoardEvent(entity(passengers, a, "passenger"), entity(trains, b, "train"), entity(stations, c, "station"));
+                case DEBOARD -> new DeboardEvent(entity(passengers, a, "passenger"), entity(trains, b, "train"), entity(stations, c, "station"));
+                case DIGEST -> new DigestEvent(digest(a, b));
+                default -> throw new RuntimeException("Unknown record type " + type + " in record " + index);
+            };
+            index++;
+            return e;
+        }
+
+        /* the entity with id i in table, which a corrupt or foreign log may not have */
+        private <T> T entity(T[] table, int i, String kind) {
+            if(i < 0 || i >= table.length) {
+                throw new RuntimeException("Bad " + kind + " id " + i + " in record " + index + " of " + table.length + " " + kind + "s");
+            }
+            return table[i];
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length == 3 && args[0].equals("tojson")) {
+            toJson(Path.of(args[1]), Path.of(args[2]));
+        } else if(args.length == 3 && args[0].equals("fromjson")) {
+            fromJson(Path.of(args[1]), Path.of(args[2]));
+        } else {
+            System.out.println("usage: java BinLog tojson <log.bin> <log.json> | fromjson <log.json> <log.bin>");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ *   Verifies a binary log (see BinLog) without building an Event per record.
+ *
+ *   The records are memory-mapped and read in place by a cursor, and each one is checked
+ *   against an int-indexed replica of the MBTA state: arrays of station ids, line positions
+ *   and directions per train, journey positions per passenger, and the train at each
+ *   station. The checks, their order and their messages are the same as in replayAndCheck,
+ *   so a log gets the same verdict, naming the same event, as Verify.verify.
+ *
+ *   The replica is built from an MBTA freshly loaded from the config, and the MBTA itself is
+ *   never changed. A passenger can only board the line serving their current leg, so riding
+ *   is a single train id. A log naming entities outside the config (or a config with a
+ *   one-station line) falls back to replaying events through Verify.verify, which fails the
+ *   way the object model does.
+ */
+public class BinVerify {
+
+    // largest region mapped at once; a whole number of records
+    static final long MAP_BYTES = (1L << 30) / BinLog.RECORD_BYTES * BinLog.RECORD_BYTES;
+
+    /* thrown from the replica when the log leaves the states it can represent */
+    private static class Unsupported extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() { super(null, null, false, false); }
+    }
+
+    final Train[] trains;
+    final Station[] stations;
+    final Passenger[] passengers;
+
+    // per train: station ids along its line, current position, direction (1 = in reverse)
+    final int[][] line;
+    final int[] tIndex;
+    final int[] tDir;
+    // per station: the train at it, or -1
+    final int[] staTrain;
+    // per passenger: station ids of the journey, the line for each leg (-1 if none),
+    // the current journey position and the train being ridden, or -1
+    final int[][] journey;
+    final int[][] legLine;
+    final int[] pIndex;
+    final int[] pTrain;
+
+    // log ids to replica ids, -1 for names not in the config
+    int[] logTrain, logStation, logPassenger;
+
+    BinVerify(MBTA mbta) {
+        trains = mbta.lines.keySet().toArray(new Train[0]);
+        passengers = mbta.journeys.keySet().toArray(new Passenger[0]);
+        Set<Station> all = new LinkedHashSet<>();
+        mbta.lines.values().forEach(all::addAll);
+        mbta.journeys.values().forEach(all::addAll);
+        stations = all.toArray(new Station[0]);
+        Map<Station, Integer> stationIds = ids(stations);
+        Map<Train, Integer> trainIds = ids(trains);
+
+        line = new int[trains.length][];
+        tIndex = new int[trains.length];
+        tDir = new int[trains.length];
+        for(int t = 0; t < trains.length; t++) {
+            line[t] = mbta.lines.get(trains[t]).stream().mapToInt(stationIds::get).toArray();
+            tIndex[t] = mbta.getTrainIndex(trains[t]);
+        }
+        staTrain = new int[stations.length];
+        for(int s = 0; s < stations.length; s++) {
+            Train t = mbta.getTrainAtSta(stations[s]);
+            staTrain[s] = t == null ? -1 : trainIds.get(t);
+        }
+        journey = new int[passengers.length][];
+        legLine = new int[passengers.length][];
+        pIndex = new int[passengers.length];
+        pTrain = new int[passengers.length];
+        for(int p = 0; p < passengers.length; p++) {
+            List<Station> stops = mbta.journeys.get(passengers[p]);
+            journey[p] = stops.stream().mapToInt(stationIds::get).toArray();
+            legLine[p] = new int[Math.max(stops.size() - 1, 0)];
+            for(int i = 0; i + 1 < stops.size(); i++) {
+                Train t = mbta.getLineServing(stops.get(i), stops.get(i + 1));
+                legLine[p][i] = t == null ? -1 : trainIds.get(t);
+            }
+            pTrain[p] = -1;
+        }
+    }
+
+    public static void verify(MBTA mbta, Path file) throws IOException {
+        mbta.checkStart();
+        BinVerify v = new BinVerify(mbta);
+        try {
+            v.replay(file);
+            v.checkEnd();
+        } catch(Unsupported e) {
+            try(EventReader r = BinLog.reader(file)) {
+                Verify.verify(mbta, r);
+            }
+        }
+    }
+
+    private void replay(Path file) throws IOException, Unsupported {
+        BinLog.Header header = BinLog.readHeader(file);
+        if(!mapLog(header)) throw new Unsupported();
+
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size() - header.recordsStart();
+            if(length % BinLog.RECORD_BYTES != 0) {
+                throw new RuntimeException("Truncated record at end of binary log");
+            }
+            long index = 0;
+            for(long off = 0; off < length; off += MAP_BYTES) {
+                MappedByteBuffer region = ch.map(FileChannel.MapMode.READ_ONLY,
+                        header.recordsStart() + off, Math.min(MAP_BYTES, length - off));
+                for(Cursor c = new Cursor(region); c.next(); index++) {
+                    check(c, index);
+                }
+            }
+        }
+    }
+
+    /* maps the log's string table onto the replica; false if the replica can't check this log */
+    boolean mapLog(BinLog.Header header) {
+        for(int[] l : line) {
+            if(l.length < 2) return false;
+        }
+        logTrain = toReplica(header.trains(), trains);
+        logStation = toReplica(header.stations(), stations);
+        logPassenger = toReplica(header.passengers(), passengers);
+        return true;
+    }
+
+    /* a view of one record at a time in a mapped region */
+    private static final class Cursor {
+        private final ByteBuffer buf;
+        int type, a, b, c;
+
+        Cursor(ByteBuffer buf) { this.buf = buf; }
+
+        boolean next() {
+            if(!buf.hasRemaining()) return false;
+            type = buf.getInt();
+            a = buf.getInt();
+            b = buf.getInt();
+            c = buf.getInt();
+            return true;
+        }
+    }
+
+    private void check(Cursor c, long index) throws Unsupported {
+        String failure = switch(c.type) {
+            case BinLog.MOVE -> move(map(logTrain, c.a), map(logStation, c.b), map(logStation, c.c));
+            case BinLog.BOARD -> board(map(logPassenger, c.a), map(logTrain, c.b), map(logStation, c.c));
+            case BinLog.DEBOARD -> deboard(map(logPassenger, c.a), map(logTrain, c.b), map(logStation, c.c));
+            case BinLog.DIGEST -> digest(BinLog.digest(c.a, c.b));
+            default -> throw new RuntimeException("Unknown record type " + c.type);
+        };
+        if(failure != null) {
+            throw new RuntimeException("Event " + index + " (" + event(c.type, c.a, c.b, c.c) + ") failed: " + failure);
+        }
+    }
+
+    private static int map(int[] ids, int id) throws Unsupported {
+        if(id < 0 || id >= ids.length || ids[id] < 0) throw new Unsupported();
+        return ids[id];
+    }
+
+    /* the same checks as MoveEvent.replayAndCheck, then MBTA.moveTrain */
+    private String move(int t, int s1, int s2) {
+        if(line[t][tIndex[t]] != s1) return "Train must currently be at " + stations[s1];
+        if(line[t][nextIndex(t)] != s2) return "Train must proceed to " + stations[s2];
+        if(staTrain[s2] >= 0) return "Only one train can be at " + stations[s2];
+        int left = line[t][tIndex[t]];
+        staTrain[s2] = t;
+        if(staTrain[left] == t && left != s2) staTrain[left] = -1;
+        /* MBTA.moveTrain always lands on getTNextStation, reversing exactly when it steps back */
+        int next = nextIndex(t);
+        tDir[t] = next < tIndex[t] ? 1 : 0;
+        tIndex[t] = next;
+        return null;
+    }
+
+    /* MBTA.getTNextStation, as a position on the line */
+    private int nextIndex(int t) {
+        return nextIndex(line[t].length, tIndex[t], tDir[t]);
+    }
+
+    static int nextIndex(int length, int i, int dir) {
+        if(i == 0) return 1;
+        if(i == length - 1) return i - 1;
+        return dir == 0 ? i + 1 : i - 1;
+    }
+
+    /* the same checks as BoardEvent.replayAndCheck, then MBTA.boardPassenger */
+    private String board(int p, int t, int s) {
+        int i = pIndex[p];
+        if(!(line[t][tIndex[t]] == s && journey[p][i] == s)) {
+            return "Passenger and train must currently be at the same station";
+        }
+        if(i >= legLine[p].length || legLine[p][i] != t) {
+            return "Passenger and train must be going to the same station";
+        }
+        /* the leg's line is fixed while riding it, so a rider can only re-board the same train */
+        pTrain[p] = t;
+        return null;
+    }
+
+    /* the same checks as DeboardEvent.replayAndCheck, then MBTA.deboardPassenger */
+    private String deboard(int p, int t, int s) {
+        if(pTrain[p] != t) return "Passenger " + passengers[p] + " not on the train";
+        if(line[t][tIndex[t]] != s) return "Train must be at current station to deboard passengers";
+        if(journey[p][pIndex[p] + 1] != s) return "Passenger shouldn't deboard at current station";
+        pTrain[p] = -1;
+        pIndex[p]++;
+        return null;
+    }
+
+    /* the same check as DigestEvent.replayAndCheck, over the replica */
+    private String digest(long digest) {
+        long replayed = 0;
+        for(int t = 0; t < trains.length; t++) replayed += DigestEvent.train(trains[t], tIndex[t], tDir[t]);
+        for(int p = 0; p < passengers.length; p++) {
+            replayed += DigestEvent.passenger(passengers[p], pIndex[p], pTrain[p] < 0 ? null : trains[pTrain[p]]);
+        }
+        if(replayed == digest) return null;
+        return "State digest " + Long.toHexString(digest) + " doesn't match the replayed " + Long.toHexString(replayed);
+    }
+
+    /* MBTA.checkEnd: off every train, at a station that is the last stop */
+    private void checkEnd() {
+        for(int p = 0; p < passengers.length; p++) {
+            if(pTrain[p] >= 0 || journey[p][pIndex[p]] != journey[p][journey[p].length - 1]) {
+                throw new RuntimeException("Passenger " + passengers[p] + " is not at their final destination");
+            }
+        }
+    }
+
+    /* the event a record stands for, from log ids that map onto the replica */
+    Event event(int type, int a, int b, int c) {
+        return switch(type) {
+            case BinLog.MOVE -> new MoveEvent(trains[logTrain[a]], stations[logStation[b]], stations[logStation[c]]);
+            case BinLog.BOARD -> new BoardEvent(passengers[logPassenger[a]], trains[logTrain[b]], stations[logStation[c]]);
+            case BinLog.DIGEST -> new DigestEvent(BinLog.digest(a, b));
+            default -> new DeboardEvent(passengers[logPassenger[a]], trains[logTrain[b]], stations[logStation[c]]);
+        };
+    }
+
+    private static <E> Map<E, Integer> ids(E[] entities) {
+        Map<E, Integer> ids = new HashMap<>();
+        for(int i = 0; i < entities.length; i++) ids.put(entities[i], i);
+        return ids;
+    }
+
+    private static int[] toReplica(List<String> names, Entity[] entities) {
+        Map<String, Integer> byName = new HashMap<>();
+        for(int i = 0; i < entities.length; i++) byName.put(entities[i].toString(), i);
+        int[] ids = new int[names.size()];
+        for(int i = 0; i < ids.length; i++) ids[i] = byName.getOrDefault(names.get(i), -1);
+        return ids;
+    }
+}
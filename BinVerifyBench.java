@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ *   Benchmark for verifying a large log (10M events by default): Verify.verify over events
+ *   already in memory, Verify.verify over events decoded from log.bin by BinLog.reader,
+ *   BinVerify over the memory-mapped log.bin, and ParallelVerify over it on the common
+ *   ForkJoinPool (size it with -Djava.util.concurrent.ForkJoinPool.common.parallelism). Reports wall time and bytes allocated by the
+ *   verifying thread, for the second of two runs of each.
+ *
+ *   The log comes from a DiscreteSim run where PASSENGERS passengers shuttle back and forth
+ *   between two stations of their line, enough times to reach the requested event count.
+ *   Run with a large heap (e.g. -Xmx4g), since the in-memory case keeps every event.
+ *
+ *   usage: java BinVerifyBench [events]
+ */
+public class BinVerifyBench {
+
+    private static final int LINES = 8;
+    private static final int STATIONS_PER_LINE = 10;
+    private static final int PASSENGERS = 1_000;
+
+    private interface Run {
+        void run(MBTA mbta) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int legs = (int) Math.max(1, events / (2L * PASSENGERS));
+
+        Path bin = Files.createTempFile("binverifybench", ".bin");
+        try {
+            MBTA mbta = Bench.network(SimState.maps(), LINES, STATIONS_PER_LINE, PASSENGERS, legs);
+            Log log = new Log(false);
+            log.addSink(BinLog.writer(bin, mbta));
+            DiscreteSim.run(mbta, log);
+            log.close();
+            List<Event> inMemory = log.events();
+
+            System.out.printf("events: %d, log.bin: %.1f MB%n", inMemory.size(), Files.size(bin) / 1e6);
+            report("Verify.verify (in memory)", legs, m -> Verify.verify(m, inMemory.iterator()));
+            report("Verify.verify (BinLog.reader)", legs, m -> {
+                try(EventReader r = BinLog.reader(bin)) {
+                    Verify.verify(m, r);
+                }
+            });
+            report("BinVerify (mapped)", legs, m -> BinVerify.verify(m, bin));
+            report("ParallelVerify (" + ForkJoinPool.commonPool().getParallelism() + " workers)", legs,
+                    m -> ParallelVerify.verify(m, bin));
+        } finally {
+            Files.delete(bin);
+        }
+    }
+
+    private static void report(String name, int legs, Run run) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long ms = 0, bytes = 0;
+        for(int i = 0; i < 2; i++) {
+            MBTA mbta = Bench.network(SimState.maps(), LINES, STATIONS_PER_LINE, PASSENGERS, legs);
+            System.gc();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            run.run(mbta);
+            ms = (System.nanoTime() - start) / 1_000_000;
+            bytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+            mbta.reset();
+        }
+        System.out.printf("%-30s %8d ms %12.1f MB allocated%n", name, ms, bytes / 1e6);
+    }
+}
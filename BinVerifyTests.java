@@ -0,0 +1,132 @@
+import org.junit.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BinVerifyTests {
+
+    private MBTA mbta;
+    private Path bin;
+
+    @Before
+    public void setUp() throws Exception {
+        mbta = new MBTA();
+        bin = Files.createTempFile("log", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mbta.reset();
+        Files.delete(bin);
+    }
+
+    private void loadTransfers() {
+        TestFixtures.loadTransfers(mbta);
+    }
+
+    private List<Event> simulate() {
+        loadTransfers();
+        Log log = new Log(false);
+        DiscreteSim.run(mbta, log);
+        log.close();
+        mbta.reset();
+        return new ArrayList<>(log.events());
+    }
+
+    private void write(List<Event> events) throws Exception {
+        loadTransfers();
+        Log log = new Log(events);
+        LogSink sink = BinLog.writer(bin, mbta);
+        sink.write(log.events());
+        sink.close();
+    }
+
+    /* the message from BinVerify, or null if the log verifies */
+    private String binVerdict() throws Exception {
+        try {
+            BinVerify.verify(mbta, bin);
+            return null;
+        } catch(RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    /* the message from ParallelVerify, run after binVerdict on the same config */
+    private String parallelVerdict() throws Exception {
+        mbta.reset();
+        loadTransfers();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelVerify.verify(mbta, bin, pool);
+            return null;
+        } catch(RuntimeException e) {
+            return e.getMessage();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* the message from Verify.verify over the same file, or null if the log verifies */
+    private String objectVerdict() throws Exception {
+        mbta.reset();
+        loadTransfers();
+        try(EventReader r = BinLog.reader(bin)) {
+            Verify.verify(mbta, r);
+            return null;
+        } catch(RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testVerifies() throws Exception {
+        write(simulate());
+        assert(binVerdict() == null);
+        assert(parallelVerdict() == null);
+    }
+
+    /* a bad move, board and deboard each fail with the same message and index as Verify */
+    @Test
+    public void testSameFailures() throws Exception {
+        List<Event> events = simulate();
+        List<Event> bad = List.of(
+                new MoveEvent(Train.make("red"), Station.make("Copley"), Station.make("Kendall")),
+                new BoardEvent(Passenger.make("Alice"), Train.make("orange"), Station.make("Ruggles")),
+                new DeboardEvent(Passenger.make("Bob"), Train.make("green"), Station.make("Park")));
+        for(Event e : bad) {
+            List<Event> corrupted = new ArrayList<>(events);
+            corrupted.add(3, e);
+            write(corrupted);
+            String verdict = binVerdict();
+            assert(verdict != null && verdict.startsWith("Event 3 "));
+            assert(verdict.equals(objectVerdict()));
+            assert(verdict.equals(parallelVerdict()));
+            mbta.reset();
+        }
+        /* a passenger left riding fails the end check */
+        List<Event> unfinished = new ArrayList<>(events);
+        unfinished.removeLast();
+        write(unfinished);
+        String verdict = binVerdict();
+        assert(verdict != null && verdict.equals(objectVerdict()));
+        assert(verdict.equals(parallelVerdict()));
+    }
+
+    /* a log naming a line outside the config falls back to, and agrees with, Verify */
+    @Test
+    public void testFallback() throws Exception {
+        loadTransfers();
+        Train purple = Train.make("purple");
+        List<Station> stations = new ArrayList<>(mbta.lines.get(Train.make("red")));
+        LogSink sink = BinLog.writer(bin, List.of(Train.make("red"), purple), stations, mbta.journeys.keySet());
+        sink.write(List.of(new MoveEvent(purple, stations.get(0), stations.get(1))));
+        sink.close();
+        String verdict = binVerdict();
+        assert(verdict != null && verdict.startsWith("Event 0 "));
+        assert(verdict.equals(objectVerdict()));
+        assert(verdict.equals(parallelVerdict()));
+    }
+}
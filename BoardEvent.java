@@ -34,7 +34,7 @@ public class BoardEvent implements Event {
         if(!(mbta.getTCurrStation(t).equals(s) && mbta.getPCurrStation(p).equals(s))) {
             throw new RuntimeException("Passenger and train must currently be at the same station");
         }
-        if(!mbta.NextTrainToBoard(p, s).equals(t)) {
+        if(!t.equals(mbta.NextTrainToBoard(p, s))) {
             throw new RuntimeException("Passenger and train must be going to the same station");
         }
         mbta.boardPassenger(t, p, s);
@@ -0,0 +1,90 @@
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/*
+ *   Benchmark for the station lock path.
+ *
+ *   First, resolving a station's lock the way TransitTrain and TransitPassenger do, and a
+ *   train claiming and leaving a free station (Occupancy): ns and bytes allocated per op.
+ *
+ *   Then a crowded run: LINES shuttles between a terminus of their own and a shared hub, with
+ *   the given number of passengers (1,000 by default) per line starting at the hub and as many
+ *   at its terminus, so thousands of threads queue on the hub's lock waiting for different
+ *   lines. Runs with the logical clock on platform and on virtual threads and reports, for the
+ *   second of two runs of each, wall time and the passenger wakeups (SimMetrics), with how
+ *   many of them found the passenger still unable to board or get off. On one core the virtual
+ *   run relies on trains parking while idle (TrainSync) to leave the carrier to passengers.
+ *
+ *   usage: java ContentionBench [passengers per line and station]
+ */
+public class ContentionBench {
+
+    private static final int LINES = 4;
+
+    public static void main(String[] args) {
+        int perStation = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+
+        MBTA mbta = build(perStation);
+        Station hub = Station.make("hub");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = 2_000_000;
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        double ns = Bench.nsPerOp(iterations, i -> mbta.getStationSync(hub).lock);
+        /* nsPerOp runs op twice as many times, counting the warmup */
+        double bytes = (double) (threads.getCurrentThreadAllocatedBytes() - allocated) / (2L * iterations);
+        Occupancy free = new Occupancy();
+        Train train = Train.make("line0");
+        allocated = threads.getCurrentThreadAllocatedBytes();
+        double claimNs = Bench.nsPerOp(iterations, i -> {
+            try {
+                free.claim(train);
+            } catch(InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            free.release(train);
+            return free;
+        });
+        double claimBytes = (double) (threads.getCurrentThreadAllocatedBytes() - allocated) / (2L * iterations);
+        mbta.reset();
+
+        System.out.printf("lock lookup:              %8.1f ns/op %8.1f B/op%n", ns, bytes);
+        System.out.printf("uncontended claim+release:%8.1f ns/op %8.1f B/op%n", claimNs, claimBytes);
+        for(Sim.Mode mode : List.of(Sim.Mode.PLATFORM, Sim.Mode.VIRTUAL)) {
+            crowded(mode, perStation);
+        }
+    }
+
+    private static void crowded(Sim.Mode mode, int perStation) {
+        long ms = 0, wakeups = 0, spurious = 0;
+        for(int i = 0; i < 2; i++) {
+            MBTA crowded = build(perStation);
+            Log log = new Log(false);
+            long start = System.nanoTime();
+            Sim.run_sim(crowded, log, mode, SimClock.logical());
+            log.flush();
+            ms = (System.nanoTime() - start) / 1_000_000;
+            log.close();
+            wakeups = crowded.metrics().wakeups.sum();
+            spurious = crowded.metrics().spurious.sum();
+            crowded.reset();
+            Sim.clearThreads();
+        }
+        System.out.printf("crowded run, %s (%d lines, %d passengers per line and station): %d ms%n", mode, LINES, perStation, ms);
+        System.out.printf("passenger wakeups: %d, spurious: %d%n", wakeups, spurious);
+    }
+
+    /* lines Tl-hub, each starting at its own terminus; passengers ride every line both ways */
+    private static MBTA build(int perStation) {
+        MBTA mbta = new MBTA();
+        for(int l = 0; l < LINES; l++) {
+            mbta.addLine("line" + l, List.of("T" + l, "hub"));
+        }
+        for(int l = 0; l < LINES; l++) {
+            for(int p = 0; p < perStation; p++) {
+                mbta.addJourney("out" + l + "_" + p, List.of("hub", "T" + l));
+                mbta.addJourney("in" + l + "_" + p, List.of("T" + l, "hub"));
+            }
+        }
+        return mbta;
+    }
+}
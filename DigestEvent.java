@@ -0,0 +1,65 @@
+import java.util.*;
+
+/*
+ *   A hash of where every train and passenger is, logged by DiscreteSim at each checkpoint.
+ *   Replaying it checks that the replayed state hashes the same, so a log that has gone
+ *   wrong is caught at the first digest after the fault, and a Snapshot can be tied to the
+ *   point in the log it was taken at (see WindowVerify).
+ *
+ *   The digest is a sum of one term per train (its position and direction) and one per
+ *   passenger (their journey position and the train they are on), so it doesn't depend on
+ *   the order entities are visited in. Terms hash entity names, not ids, which differ from
+ *   one process to the next.
+ */
+public class DigestEvent implements Event {
+
+    public final long digest;
+
+    public DigestEvent(long digest) {
+        this.digest = digest;
+    }
+
+    public boolean equals(Object o) {
+        if (o instanceof DigestEvent e) {
+            return digest == e.digest;
+        }
+        return false;
+    }
+
+    public int hashCode() {
+        return Long.hashCode(digest);
+    }
+
+    public String toString() {
+        return "State digest " + Long.toHexString(digest);
+    }
+
+    public List<String> toStringList() {
+        return List.of(Long.toHexString(digest));
+    }
+
+    public void replayAndCheck(MBTA mbta) {
+        long replayed = mbta.digest();
+        if(replayed != digest) {
+            throw new RuntimeException("State digest " + Long.toHexString(digest) + " doesn't match the replayed "
+                    + Long.toHexString(replayed));
+        }
+    }
+
+    /* train t's term: at position index of its line, heading in direction */
+    public static long train(Train t, int index, int direction) {
+        return mix(mix(t.toString().hashCode()) + 2L * index + direction);
+    }
+
+    /* passenger p's term: at stop index of their journey, riding on (null if on no train) */
+    public static long passenger(Passenger p, int index, Train on) {
+        return mix(mix(~(long) p.toString().hashCode()) + 31L * index + (on == null ? 0 : on.toString().hashCode()));
+    }
+
+    /* SplitMix64's finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
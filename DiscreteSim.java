@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+ *   Single-threaded discrete-event engine, an alternative to the thread-per-entity simulation.
+ *
+ *   Every train is driven by timed steps kept in a priority queue ordered by (time, sequence
+ *   number). A step tries to move the train to its next station; if that station is occupied
+ *   the train queues up behind it and is rescheduled when the occupying train leaves. When a
+ *   train arrives at a station, riders alighting there deboard first, then passengers waiting
+ *   for that train board. All changes go through the same MBTA methods and Log calls as the
+ *   threaded simulation, so Verify accepts the output.
+ *
+ *   Time is logical: a run depends only on the config, so it is reproducible and runs at CPU
+ *   speed rather than wall-clock speed.
+ *
+ *   The engine's own state is rebuilt from MBTA's when it starts, so it runs on from wherever
+ *   MBTA.restore put the trains and passengers. Given Checkpoints, every so many events it logs
+ *   a DigestEvent of the state and writes a Snapshot just after it, which a later run can
+ *   resume from and WindowVerify can verify the log from. A resumed run is a valid continuation
+ *   but not necessarily the one the first run would have made: trains that were queued for a
+ *   station, or due at different times, all start out due together.
+ */
+public class DiscreteSim {
+
+    // logical time a train spends at a station before trying to leave
+    public static final long DWELL = 1;
+
+    private record Step(long time, long seq, Train t) {}
+
+    /*
+     *   events already in the log when the run starts, and a checkpoint every every events (0 for
+     *   never): a DigestEvent, then the Snapshot written over file and kept in dir as
+     *   Snapshot.inDir names it, either of which may be null
+     */
+    public record Checkpoints(long events, long every, Path file, Path dir) {
+        public static final Checkpoints NONE = new Checkpoints(0, 0, null, null);
+
+        public Checkpoints(long events, long every, Path file) {
+            this(events, every, file, null);
+        }
+    }
+
+    private final MBTA mbta;
+    private final Log log;
+    private final Checkpoints checkpoints;
+
+    private final PriorityQueue<Step> queue;
+    // trains waiting for each station to become available, in arrival order
+    private final Map<Station, Deque<Train>> blocked;
+    // passengers waiting at each station, grouped by the train they will board
+    private final Map<Station, Map<Train, List<Passenger>>> waiting;
+    // passengers on each train, grouped by the station they will deboard at
+    private final Map<Train, Map<Station, List<Passenger>>> riders;
+
+    private long now;
+    private long seq;
+    // passengers that still have stations remaining
+    private int remaining;
+    // events logged, counting those before the run started, and since the last checkpoint
+    private long events;
+    private long sinceCheckpoint;
+
+    private DiscreteSim(MBTA mbta, Log log, Checkpoints checkpoints) {
+        this.mbta = mbta;
+        this.log = log;
+        this.checkpoints = checkpoints;
+        events = checkpoints.events();
+        queue = new PriorityQueue<>(Comparator.comparingLong(Step::time).thenComparingLong(Step::seq));
+        blocked = new HashMap<>();
+        waiting = new HashMap<>();
+        riders = new HashMap<>();
+    }
+
+    public static void run(MBTA mbta, Log log) {
+        run(mbta, log, Checkpoints.NONE);
+    }
+
+    public static void run(MBTA mbta, Log log, Checkpoints checkpoints) {
+        new DiscreteSim(mbta, log, checkpoints).run();
+    }
+
+    private void run() {
+        for(Passenger p : mbta.journeys.keySet()) {
+            Station next = mbta.getPNextStation(p);
+            if(next == null) continue;
+            remaining++;
+            Train t = mbta.isPassengerOnTrain(p);
+            if(t != null) {
+                ride(p, t, next);
+            } else {
+                waitAt(p, mbta.getPCurrStation(p));
+            }
+        }
+        for(Train t : mbta.lines.keySet()) {
+            serve(t, mbta.getTCurrStation(t));
+            schedule(t, now + DWELL);
+        }
+        while(remaining > 0) {
+            Step step = queue.poll();
+            if(step == null) {
+                throw new RuntimeException("Simulation deadlocked at time " + now + " with "
+                        + remaining + " passengers remaining");
+            }
+            now = step.time();
+            depart(step.t());
+        }
+    }
+
+    private void schedule(Train t, long time) {
+        queue.add(new Step(time, seq++, t));
+    }
+
+    /* moves t to its next station, or queues it up if that station is occupied */
+    private void depart(Train t) {
+        Station curr = mbta.getTCurrStation(t);
+        Station next = mbta.getTNextStation(t);
+        if(!mbta.getStaAvailability(next)) {
+            blocked.computeIfAbsent(next, k -> new ArrayDeque<>()).add(t);
+            return;
+        }
+        log.train_moves(t, curr, next);
+        mbta.moveTrain(t, curr, next);
+        logged();
+        /* the first train waiting for the station we just left retries now */
+        Deque<Train> behind = blocked.get(curr);
+        if(behind != null && !behind.isEmpty()) {
+            schedule(behind.poll(), now);
+        }
+        serve(t, next);
+        schedule(t, now + DWELL);
+    }
+
+    /* deboards riders whose next station is s, then boards passengers waiting for t at s */
+    private void serve(Train t, Station s) {
+        Map<Station, List<Passenger>> onBoard = riders.get(t);
+        List<Passenger> alighting = onBoard == null ? null : onBoard.remove(s);
+        if(alighting != null) {
+            for(Passenger p : alighting) {
+                log.passenger_deboards(p, t, s);
+                mbta.deboardPassenger(t, p, s);
+                logged();
+                if(mbta.getPNextStation(p) == null) {
+                    remaining--;
+                } else {
+                    waitAt(p, s);
+                }
+            }
+        }
+        Map<Train, List<Passenger>> atStation = waiting.get(s);
+        List<Passenger> boarding = atStation == null ? null : atStation.remove(t);
+        if(boarding != null) {
+            for(Passenger p : boarding) {
+                board(p, t, s);
+            }
+        }
+    }
+
+    private void waitAt(Passenger p, Station s) {
+        Train t = mbta.NextTrainToBoard(p, s);
+        if(t == null) {
+            throw new RuntimeException("No line takes passenger " + p + " from " + s
+                    + " to " + mbta.getPNextStation(p));
+        }
+        /* the right train may already be sitting at the station */
+        if(t.equals(mbta.getTrainAtSta(s))) {
+            board(p, t, s);
+            return;
+        }
+        waiting.computeIfAbsent(s, k -> new HashMap<>()).computeIfAbsent(t, k -> new ArrayList<>()).add(p);
+    }
+
+    private void board(Passenger p, Train t, Station s) {
+        log.passenger_boards(p, t, s);
+        mbta.boardPassenger(t, p, s);
+        logged();
+        ride(p, t, mbta.getPNextStation(p));
+    }
+
+    /* counts an event just applied to mbta, checkpointing when one is due */
+    private void logged() {
+        events++;
+        if(checkpoints.every() > 0 && ++sinceCheckpoint == checkpoints.every()) {
+            sinceCheckpoint = 0;
+            log.state_digest(mbta.digest());
+            events++;
+            Snapshot snapshot = mbta.snapshot(events);
+            try {
+                if(checkpoints.file() != null) snapshot.write(checkpoints.file());
+                if(checkpoints.dir() != null) snapshot.write(Snapshot.inDir(checkpoints.dir(), events));
+            } catch(IOException e) {
+                throw new RuntimeException("Couldn't write checkpoint at event " + events + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void ride(Passenger p, Train t, Station dst) {
+        riders.computeIfAbsent(t, k -> new HashMap<>()).computeIfAbsent(dst, k -> new ArrayList<>()).add(p);
+    }
+}
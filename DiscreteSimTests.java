@@ -0,0 +1,73 @@
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DiscreteSimTests {
+
+    private MBTA mbta;
+    private Log log;
+
+    @Before
+    public void setUp() {
+        mbta = new MBTA();
+        log = new Log();
+    }
+
+    @After
+    public void tearDown() {
+        mbta.reset();
+    }
+
+    private void loadTransfers() {
+        TestFixtures.loadTransfers(mbta);
+    }
+
+    /* the discrete-event log must be accepted by the same verifier as the threaded one */
+    @Test
+    public void testVerifies() {
+        loadTransfers();
+        Sim.run_sim(mbta, log, Sim.Mode.DISCRETE);
+        mbta.reset();
+        loadTransfers();
+        Verify.verify(mbta, log);
+    }
+
+    /* two runs over the same config produce exactly the same events */
+    @Test
+    public void testReproducible() {
+        loadTransfers();
+        DiscreteSim.run(mbta, log);
+        List<Event> first = new ArrayList<>(log.events());
+        mbta.reset();
+        loadTransfers();
+        Log again = new Log();
+        DiscreteSim.run(mbta, again);
+        assert(first.equals(again.events()));
+    }
+
+    /* the array-backed state store gives the same run, and the same verdict, as the maps */
+    @Test
+    public void testArrayState() {
+        loadTransfers();
+        DiscreteSim.run(mbta, log);
+        mbta.reset();
+        mbta = new MBTA(SimState.arrays());
+        loadTransfers();
+        Log again = new Log();
+        DiscreteSim.run(mbta, again);
+        assert(log.events().equals(again.events()));
+        mbta.reset();
+        loadTransfers();
+        Verify.verify(mbta, again);
+    }
+
+    /* red and blue run towards each other over the same stations and can never pass */
+    @Test(expected = RuntimeException.class)
+    public void testDeadlockDetected() {
+        mbta.addLine("red", List.of("A", "B", "C"));
+        mbta.addLine("blue", List.of("C", "B", "A"));
+        mbta.addJourney("Alice", List.of("A", "C"));
+        DiscreteSim.run(mbta, log);
+    }
+}
@@ -1,19 +1,29 @@
 public abstract class Entity {
 
     private final String name;
+    // dense per kind of entity, see Registry
+    private final int id;
+    private final int hash;
 
     private MBTA mbta;
     private Log log;
 
-    protected Entity(String name) {
+    protected Entity(String name, int id) {
         this.name = name;
+        this.id = id;
+        hash = name.hashCode();
     }
 
     public String toString() {
         return name;
     }
 
+    public int id() {
+        return id;
+    }
+
     public boolean equals(Object o) {
+        if (o == this) return true;
         if (o instanceof Entity e) {
           return e.getClass().equals(getClass()) && name.equals(e.name);
         }
@@ -21,7 +31,7 @@ public abstract class Entity {
     }
 
     public int hashCode() {
-        return name.hashCode();
+        return hash;
     }
 
     public void initializeSim(MBTA mbta, Log log) {
@@ -0,0 +1,8 @@
+import java.io.Closeable;
+import java.util.Iterator;
+
+/*
+ *   A log read lazily from a file, one event at a time.
+ */
+public interface EventReader extends Iterator<Event>, Closeable {
+}
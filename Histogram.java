@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ *   Log-linear histogram of non-negative longs (nanoseconds, in SimMetrics), after HdrHistogram.
+ *   Values below 2^SUB_BITS get a bucket each; above that every power of two is split into
+ *   2^SUB_BITS equal buckets, so a bucket is never wider than 1/32 of the values in it.
+ *
+ *   record is one atomic add on a fixed array, a striped add for the mean and a max that only
+ *   writes when beaten, and never allocates, so simulation threads can call it on every wait.
+ *   The count is summed over the buckets when read.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long value) {
+        if(value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        long n = 0;
+        for(int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /* the value at or below which a fraction q of the recorded values fall, to bucket precision */
+    public long percentile(double q) {
+        long n = count();
+        if(n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for(int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if(seen >= rank) {
+                /* the highest value the bucket stands for, but never above what was recorded */
+                return Math.min(i + 1 < counts.length() ? lowest(i + 1) - 1 : Long.MAX_VALUE, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void clear() {
+        for(int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        sum.reset();
+        max.reset();
+    }
+
+    static int index(long value) {
+        if(value < SUB) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    /* the lowest value counted in bucket index */
+    static long lowest(int index) {
+        if(index < SUB) return index;
+        int shift = index / SUB - 1;
+        return (long) (index % SUB + SUB) << shift;
+    }
+}
@@ -1,42 +1,164 @@
-import java.lang.reflect.*;
 import java.io.*;
 import java.util.*;
-import com.google.gson.*;
-import com.google.gson.reflect.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 
+/*
+ *   Simulation threads only enqueue events into a lock-free queue; a single writer thread
+ *   drains it in batches, appends them to the event list and hands each batch to the sinks
+ *   (console echo, files). The queue's order is the total order of the log, so Verify sees
+ *   events exactly in the order they were recorded. A log that doesn't keep its events holds
+ *   only those the writer has yet to hand on, so a run of any length logs to a file in
+ *   bounded memory and is checked by reading the file back.
+ */
 public class Log {
-  private List<Event> events;
+  private static final int MAX_BATCH = 4096;
+
+  // null if the log doesn't keep its events
+  private final List<Event> events;
+  private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+  private final List<LogSink> sinks = new CopyOnWriteArrayList<>();
+
+  private volatile Thread writer;
+  // set by the writer while it holds polled events that are not yet in `events`
+  private volatile boolean busy;
+  // set by the writer right before it parks for lack of events
+  private volatile boolean parked;
+  private volatile boolean closed;
 
   public Log() {
-    events = new LinkedList<>();
+    this(true);
+  }
+
+  // echo: whether events are also printed to System.out
+  public Log(boolean echo) {
+    this(echo, true);
+  }
+
+  // keep: whether events are also kept for events(), rather than only handed to the sinks
+  public Log(boolean echo, boolean keep) {
+    events = keep ? new ArrayList<>() : null;
+    if (echo) sinks.add(LogSink.console());
   }
 
+  // a finished log, e.g. one read back from a file
   public Log(List<Event> events) {
     this.events = events;
   }
 
-  public synchronized List<Event> events() {
+  public void addSink(LogSink sink) {
+    sinks.add(sink);
+  }
+
+  // stops handing batches to sink; it is not closed
+  public void removeSink(LogSink sink) {
+    sinks.remove(sink);
+  }
+
+  // every event recorded so far, once the writer has caught up with them
+  public List<Event> events() {
+    if (events == null) {
+      throw new RuntimeException("The log keeps no events; read them back from its file");
+    }
+    flush();
     return events;
   }
 
-  public synchronized void train_moves(Train t, Station s1, Station s2) {
-    Event e = new MoveEvent(t, s1, s2);
-    events.add(e);
-    System.out.println(e);
-    System.out.flush();
+  public void train_moves(Train t, Station s1, Station s2) {
+    record(new MoveEvent(t, s1, s2));
+  }
+
+  public void passenger_boards(Passenger p, Train t, Station s) {
+    record(new BoardEvent(p, t, s));
+  }
+
+  public void passenger_deboards(Passenger p, Train t, Station s) {
+    record(new DeboardEvent(p, t, s));
+  }
+
+  public void state_digest(long digest) {
+    record(new DigestEvent(digest));
+  }
+
+  private void record(Event e) {
+    pending.offer(e);
+    Thread w = writer;
+    if (w == null) {
+      startWriter();
+    } else if (parked) {
+      LockSupport.unpark(w);
+    }
+  }
+
+  private synchronized void startWriter() {
+    if (writer != null) return;
+    Thread w = new Thread(this::drain, "log-writer");
+    w.setDaemon(true);
+    writer = w;
+    w.start();
+  }
+
+  private void drain() {
+    List<Event> batch = new ArrayList<>();
+    while (true) {
+      busy = true;
+      Event e;
+      while (batch.size() < MAX_BATCH && (e = pending.poll()) != null) {
+        batch.add(e);
+      }
+      if (!batch.isEmpty()) {
+        if (events != null) events.addAll(batch);
+        for (LogSink sink : sinks) {
+          try {
+            sink.write(batch);
+          } catch (IOException ex) {
+            System.err.println("Log: dropping sink after write error: " + ex.getMessage());
+            sinks.remove(sink);
+          }
+        }
+      }
+      busy = false;
+      if (batch.isEmpty()) {
+        if (closed) return;
+        parked = true;
+        /* re-check after publishing parked, so a producer either sees it or we see its event */
+        if (pending.isEmpty() && !closed) LockSupport.park(this);
+        parked = false;
+      }
+      batch.clear();
+    }
   }
 
-  public synchronized void passenger_boards(Passenger p, Train t, Station s) {
-    Event e = new BoardEvent(p, t, s);
-    events.add(e);
-    System.out.println(e);
-    System.out.flush();
+  // waits until every event recorded before this call has reached the list and the sinks
+  public void flush() {
+    Thread w = writer;
+    if (w == null) return;
+    while (!pending.isEmpty() || busy) {
+      LockSupport.unpark(w);
+      LockSupport.parkNanos(50_000);
+    }
   }
 
-  public synchronized void passenger_deboards(Passenger p, Train t, Station s) {
-    Event e = new DeboardEvent(p, t, s);
-    events.add(e);
-    System.out.println(e);
-    System.out.flush();
+  // flushes, stops the writer thread and closes the sinks
+  public void close() {
+    flush();
+    closed = true;
+    Thread w = writer;
+    if (w != null) {
+      LockSupport.unpark(w);
+      try {
+        w.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (LogSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException ex) {
+        System.err.println("Log: error closing sink: " + ex.getMessage());
+      }
+    }
   }
 }
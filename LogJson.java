@@ -3,9 +3,10 @@ import java.lang.reflect.*;
 import java.util.*;
 import com.google.gson.*;
 import com.google.gson.reflect.*;
+import com.google.gson.stream.*;
 
 public class LogJson {
-  private static List<List<String>> entries;
+  private final List<List<String>> entries;
   private static Gson gson = new Gson();
   private static Map<Class<?>, String> eventToKey = new HashMap<>();
   private static Map<String, Class<?>> keyToEvent = new HashMap<>();
@@ -14,6 +15,7 @@ public class LogJson {
     LogJson.registerEvent(MoveEvent.class, "Move");
     LogJson.registerEvent(DeboardEvent.class, "Deboard");
     LogJson.registerEvent(BoardEvent.class, "Board");
+    LogJson.registerEvent(DigestEvent.class, "Digest");
   }
 
   private LogJson(List<List<String>> entries) { this.entries = entries; }
@@ -21,33 +23,14 @@ public class LogJson {
   public LogJson(Log log) {
     entries = new LinkedList<>();
     for (Event e : log.events()) {
-      LinkedList<String> elts = new LinkedList<>(e.toStringList());
-      elts.addFirst(eventToKey.get(e.getClass()));
-      entries.add(elts);
+      entries.add(toEntry(e));
     }
   }
 
   public Log toLog() {
-    System.out.println(keyToEvent);
     List<Event> events = new LinkedList<>();
     for (List<String> e : entries) {
-      System.out.println("key: " + e.get(0) + " result: " + keyToEvent.get(e.get(0)));
-      Class<?> cls = keyToEvent.get(e.get(0));
-      if (cls == MoveEvent.class) {
-        Event evt = new MoveEvent(Train.make(e.get(1)), Station.make(e.get(2)), Station.make(e.get(3)));
-        events.add(evt);
-      }
-      else if (cls == BoardEvent.class) {
-        Event evt = new BoardEvent(Passenger.make(e.get(1)), Train.make(e.get(2)), Station.make(e.get(3)));
-        events.add(evt);
-      }
-      else if (cls == DeboardEvent.class) {
-        Event evt = new DeboardEvent(Passenger.make(e.get(1)), Train.make(e.get(2)), Station.make(e.get(3)));
-        events.add(evt);
-      }
-      else {
-          throw new RuntimeException("Don't know what to do with event kind " + cls);
-      }
+      events.add(toEvent(e));
     }
     return new Log(events);
   }
@@ -56,6 +39,32 @@ public class LogJson {
     eventToKey.put(c, k); keyToEvent.put(k, c);
   }
 
+  // the JSON array for one event: its key followed by its strings
+  public static List<String> toEntry(Event e) {
+    LinkedList<String> elts = new LinkedList<>(e.toStringList());
+    elts.addFirst(eventToKey.get(e.getClass()));
+    return elts;
+  }
+
+  public static Event toEvent(List<String> e) {
+    Class<?> cls = keyToEvent.get(e.get(0));
+    if (cls == MoveEvent.class) {
+      return new MoveEvent(Train.make(e.get(1)), Station.make(e.get(2)), Station.make(e.get(3)));
+    }
+    else if (cls == BoardEvent.class) {
+      return new BoardEvent(Passenger.make(e.get(1)), Train.make(e.get(2)), Station.make(e.get(3)));
+    }
+    else if (cls == DeboardEvent.class) {
+      return new DeboardEvent(Passenger.make(e.get(1)), Train.make(e.get(2)), Station.make(e.get(3)));
+    }
+    else if (cls == DigestEvent.class) {
+      return new DigestEvent(Long.parseUnsignedLong(e.get(1), 16));
+    }
+    else {
+      throw new RuntimeException("Don't know what to do with event kind " + cls);
+    }
+  }
+
   public String toJson() {
     return gson.toJson(entries);
   }
@@ -74,4 +83,76 @@ public class LogJson {
     return lj;
   }
 
+  /*
+   *   A sink that streams events into out as they are logged, in the same layout as toJson.
+   *   The closing bracket is written when the sink (or its Log) is closed.
+   */
+  public static LogSink writer(Writer out) throws IOException {
+    JsonWriter jw = new JsonWriter(out);
+    jw.beginArray();
+    return new LogSink() {
+      @Override
+      public void write(List<Event> batch) throws IOException {
+        for (Event e : batch) {
+          jw.beginArray();
+          for (String s : toEntry(e)) {
+            jw.value(s);
+          }
+          jw.endArray();
+        }
+        jw.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        jw.endArray();
+        jw.close();
+      }
+    };
+  }
+
+  // reads a log lazily, one event at a time
+  public static EventReader reader(Reader r) throws IOException {
+    return new JsonEvents(r);
+  }
+
+  private static class JsonEvents implements EventReader {
+    private final JsonReader jr;
+    private final List<String> entry = new ArrayList<>();
+
+    private JsonEvents(Reader r) throws IOException {
+      jr = new JsonReader(r);
+      jr.beginArray();
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return jr.hasNext();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public Event next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      try {
+        entry.clear();
+        jr.beginArray();
+        while (jr.hasNext()) {
+          entry.add(jr.nextString());
+        }
+        jr.endArray();
+        return toEvent(entry);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      jr.close();
+    }
+  }
 }
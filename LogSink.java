@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+/*
+ *   Receives the events of a Log in batches, on the log's writer thread and in log order.
+ */
+public interface LogSink {
+
+    public void write(List<Event> batch) throws IOException;
+
+    public default void close() throws IOException {}
+
+    // echoes each event to System.out, one write and flush per batch
+    public static LogSink console() {
+        return batch -> {
+            StringBuilder sb = new StringBuilder();
+            for(Event e : batch) {
+                sb.append(e).append(System.lineSeparator());
+            }
+            PrintStream out = System.out;
+            out.print(sb);
+            out.flush();
+        };
+    }
+
+    // writes each event as a line of text, flushing once per batch
+    public static LogSink text(Writer out) {
+        return new LogSink() {
+            @Override
+            public void write(List<Event> batch) throws IOException {
+                for(Event e : batch) {
+                    out.write(e.toString());
+                    out.write(System.lineSeparator());
+                }
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+}
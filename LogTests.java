@@ -0,0 +1,191 @@
+import org.junit.*;
+
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogTests {
+
+    /* every event from every thread arrives, and each thread's events keep their order */
+    @Test(timeout = 10000)
+    public void testConcurrentProducers() throws InterruptedException {
+        Log log = new Log(false);
+        int threads = 8, perThread = 10_000;
+        List<Thread> producers = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            Train t = Train.make("line" + i);
+            producers.add(new Thread(() -> {
+                for(int j = 0; j < perThread; j++) {
+                    log.train_moves(t, Station.make("S" + j), Station.make("S" + (j + 1)));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for(Thread p : producers) p.join();
+
+        List<Event> events = log.events();
+        assert(events.size() == threads * perThread);
+        int[] next = new int[threads];
+        for(Event e : events) {
+            MoveEvent m = (MoveEvent) e;
+            int line = Integer.parseInt(m.t.toString().substring(4));
+            assert(m.s1.toString().equals("S" + next[line]));
+            next[line]++;
+        }
+        log.close();
+    }
+
+    /* sinks see the same events, in the same order, as events() */
+    @Test
+    public void testTextSink() {
+        Log log = new Log(false);
+        StringWriter out = new StringWriter();
+        log.addSink(LogSink.text(out));
+        log.passenger_boards(Passenger.make("Anna"), Train.make("red"), Station.make("Park Street"));
+        log.passenger_deboards(Passenger.make("Anna"), Train.make("red"), Station.make("MGH"));
+        log.close();
+        String expected = "Passenger Anna boards red at Park Street" + System.lineSeparator()
+                + "Passenger Anna deboards red at MGH" + System.lineSeparator();
+        assert(out.toString().equals(expected));
+    }
+
+    /* the streaming writer produces the same JSON as LogJson.toJson, and the reader gives the events back */
+    @Test
+    public void testJsonStreaming() throws Exception {
+        Log log = new Log(false);
+        StringWriter out = new StringWriter();
+        log.addSink(LogJson.writer(out));
+        log.train_moves(Train.make("red"), Station.make("Davis"), Station.make("Harvard"));
+        log.passenger_boards(Passenger.make("Anna"), Train.make("red"), Station.make("Harvard"));
+        log.passenger_deboards(Passenger.make("Anna"), Train.make("red"), Station.make("Kendall"));
+        log.close();
+        assert(out.toString().equals(new LogJson(log).toJson()));
+
+        List<Event> read = new ArrayList<>();
+        try(EventReader r = LogJson.reader(new StringReader(out.toString()))) {
+            r.forEachRemaining(read::add);
+        }
+        assert(read.equals(log.events()));
+    }
+
+    /* a log that doesn't keep its events still hands every one to its sinks */
+    @Test
+    public void testNotKept() throws Exception {
+        Log log = new Log(false, false);
+        StringWriter out = new StringWriter();
+        log.addSink(LogJson.writer(out));
+        log.train_moves(Train.make("red"), Station.make("Davis"), Station.make("Harvard"));
+        log.passenger_boards(Passenger.make("Anna"), Train.make("red"), Station.make("Harvard"));
+        log.close();
+        List<Event> read = new ArrayList<>();
+        try(EventReader r = LogJson.reader(new StringReader(out.toString()))) {
+            r.forEachRemaining(read::add);
+        }
+        assert(read.equals(List.of(new MoveEvent(Train.make("red"), Station.make("Davis"), Station.make("Harvard")),
+                new BoardEvent(Passenger.make("Anna"), Train.make("red"), Station.make("Harvard")))));
+        try {
+            log.events();
+            assert(false);
+        } catch(RuntimeException e) {
+            assert(e.getMessage().contains("keeps no events"));
+        }
+    }
+
+    /* binary logs read back as the same events, and convert to and from the JSON layout */
+    @Test
+    public void testBinaryLog() throws Exception {
+        Path bin = Files.createTempFile("log", ".bin");
+        Path json = Files.createTempFile("log", ".json");
+        Path again = Files.createTempFile("log", ".bin");
+        try {
+            Train red = Train.make("red");
+            Passenger anna = Passenger.make("Anna");
+            Station davis = Station.make("Davis"), harvard = Station.make("Harvard");
+            Log log = new Log(false);
+            log.addSink(BinLog.writer(bin, List.of(red), List.of(davis, harvard), List.of(anna)));
+            log.passenger_boards(anna, red, davis);
+            log.train_moves(red, davis, harvard);
+            log.passenger_deboards(anna, red, harvard);
+            log.close();
+            assert(BinLog.isBinary(bin));
+
+            List<Event> read = new ArrayList<>();
+            try(EventReader r = BinLog.reader(bin)) {
+                r.forEachRemaining(read::add);
+            }
+            assert(read.equals(log.events()));
+
+            BinLog.toJson(bin, json);
+            assert(!BinLog.isBinary(json));
+            assert(Files.readString(json).equals(new LogJson(log).toJson()));
+            BinLog.fromJson(json, again);
+            assert(Files.mismatch(bin, again) == -1);
+        } finally {
+            Files.delete(bin);
+            Files.delete(json);
+            Files.delete(again);
+        }
+    }
+
+    /* a record naming an id its header doesn't have fails with the record's index */
+    @Test
+    public void testBadBinaryId() throws Exception {
+        Path bin = Files.createTempFile("log", ".bin");
+        try {
+            Train red = Train.make("red");
+            Passenger anna = Passenger.make("Anna");
+            Station davis = Station.make("Davis"), harvard = Station.make("Harvard");
+            Log log = new Log(false);
+            log.addSink(BinLog.writer(bin, List.of(red), List.of(davis, harvard), List.of(anna)));
+            log.passenger_boards(anna, red, davis);
+            log.train_moves(red, davis, harvard);
+            log.close();
+            /* the last record's second field is the station it moves from */
+            try(RandomAccessFile f = new RandomAccessFile(bin.toFile(), "rw")) {
+                f.seek(f.length() - BinLog.RECORD_BYTES + 8);
+                f.writeInt(7);
+            }
+            try(EventReader r = BinLog.reader(bin)) {
+                r.next();
+                r.next();
+                assert(false);
+            } catch(RuntimeException e) {
+                assert(e.getMessage().equals("Bad station id 7 in record 1 of 2 stations"));
+            }
+        } finally {
+            Files.delete(bin);
+        }
+    }
+
+    /* header counts and name lengths that the file can't hold are rejected before allocating */
+    @Test
+    public void testBadStringTable() throws Exception {
+        Path bin = Files.createTempFile("log", ".bin");
+        try {
+            Log log = new Log(false);
+            log.addSink(BinLog.writer(bin, List.of(Train.make("red")), List.of(Station.make("Davis")), List.of(Passenger.make("Anna"))));
+            log.close();
+            /* the train count, then the first train's name length */
+            for(long[] bad : new long[][] { { 8, -1 }, { 8, Integer.MAX_VALUE }, { 12, -5 }, { 12, Integer.MAX_VALUE } }) {
+                byte[] original = Files.readAllBytes(bin);
+                try(RandomAccessFile f = new RandomAccessFile(bin.toFile(), "rw")) {
+                    f.seek(bad[0]);
+                    f.writeInt((int) bad[1]);
+                }
+                try {
+                    BinLog.reader(bin).close();
+                    assert(false);
+                } catch(RuntimeException e) {
+                    assert(e.getMessage().startsWith("Bad string table"));
+                }
+                Files.write(bin, original);
+            }
+        } finally {
+            Files.delete(bin);
+        }
+    }
+}
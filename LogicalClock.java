@@ -0,0 +1,18 @@
+import java.util.concurrent.locks.Condition;
+
+/*
+ *   Logical time: a train stays at a station exactly until boarding there has quiesced, i.e. no
+ *   rider of the train wants to get off and no passenger at the station is waiting for it.
+ *   Passengers signal the departure condition after each board/deboard, so the train re-checks
+ *   only when something changed.
+ */
+public class LogicalClock implements SimClock {
+
+    @Override
+    public void dwell(MBTA mbta, Train t, Station s) throws InterruptedException {
+        Condition departure = mbta.getStationSync(s).departure;
+        while(!mbta.isBoardingQuiesced(t, s)) {
+            departure.await();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -7,7 +7,6 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class MBTA {
 
@@ -15,96 +14,132 @@ public class MBTA {
     public final Map<Train, List<Station>> lines;
     public final Map<Passenger, List<Station>> journeys;
 
+    // each station, the lines serving it (in the order they were added) and its position on each;
+    // the per-station maps are immutable and replaced wholesale by addLine
+    private final Map<Station, Map<Train, Integer>> stationLines;
+    // plans transfers for journeys, rebuilt lazily after lines change
+    private volatile RoutePlanner planner;
+
     // each train and their current station
     private final Map<Train, Station> tCurrStation;
+    // reverse of tCurrStation: each occupied station and the train at it
+    private final Map<Station, Train> staTrain;
     // each passenger and their current station
-    private final Map<Passenger, Station> pCurrStation;
+    // (this and the other per-passenger maps are replaced by reserve while still empty)
+    private Map<Passenger, Station> pCurrStation;
 
-    // each train and their current station index
-    private final Map<Train, Integer> trainIndex;
-    // each train and their current direction (1 = in reverse)
-    private final Map<Train, Integer> trainDirection;
+    // each train's current station index and direction, and each passenger's journey index
+    private final SimState state;
 
     // passengers on each train
-    private final Map<Train, List<Passenger>> trainPassengers;
+    private final Map<Train, Set<Passenger>> trainPassengers;
+    // reverse of trainPassengers: each passenger on a train and that train
+    private Map<Passenger, Train> pTrain;
     // passengers at each station
     private final Map<Station, List<Passenger>> staPassengers;
 
-    // each passenger and their remaining stations
-    private final Map<Passenger, Integer> pIndex;
-
     // 1-1 mapping between entities and threads
     private final Map<Train, TransitTrain> trainMapping;
-    private final Map<Passenger, TransitPassenger> passengerMapping;
+    private Map<Passenger, TransitPassenger> passengerMapping;
+
+    // where each train waits while it has nothing to do
+    private final Map<Train, TrainSync> trainSyncs;
 
-    // each station and their associated locks/conditions
-    private final Map<Station, Map<Lock, List<Condition>>> stationLocks;
+    // each station's lock and conditions, indexed by station id; replaced when it grows
+    private volatile StationSync[] stationSyncs;
+
+    // what runs of this simulation did, see SimMetrics
+    private final SimMetrics metrics;
 
     // Creates an initially empty simulation
     public MBTA() {
+        this(SimState.maps());
+    }
+
+    // Creates an initially empty simulation keeping its counters in the given store
+    public MBTA(SimState state) {
+        this.state = state;
         lines = new HashMap<>();
         journeys = new HashMap<>();
+        stationLines = new ConcurrentHashMap<>();
         tCurrStation = new ConcurrentHashMap<>();
+        staTrain = new ConcurrentHashMap<>();
         pCurrStation = new ConcurrentHashMap<>();
-        trainIndex = new ConcurrentHashMap<>();
-        trainDirection = new ConcurrentHashMap<>();
         trainPassengers = new ConcurrentHashMap<>();
+        pTrain = new ConcurrentHashMap<>();
         staPassengers = new ConcurrentHashMap<>();
-        pIndex = new ConcurrentHashMap<>();
         trainMapping = new HashMap<>();
         passengerMapping = new HashMap<>();
-        stationLocks = new ConcurrentHashMap<>();
+        trainSyncs = new ConcurrentHashMap<>();
+        stationSyncs = new StationSync[0];
+        metrics = new SimMetrics();
     }
 
     // Adds a new transit line with given name and stations
     public void addLine(String name, List<String> stations) {
         Train t = Train.make(name);
+        planner = null;
         /* Initialize states associated with trains */
         lines.putIfAbsent(t, new ArrayList<>());
-        trainPassengers.putIfAbsent(t, new ArrayList<>());
+        trainPassengers.putIfAbsent(t, ConcurrentHashMap.newKeySet());
+        trainSyncs.putIfAbsent(t, new TrainSync());
         /* Initialize the stations */
         for(String station : stations) {
             Station currSta = Station.make(station);
+            indexStation(currSta, t, lines.get(t).size());
             lines.get(t).add(currSta);
             staPassengers.put(currSta, new ArrayList<>());
-            setUpLocks(currSta);
+            setUpLocks(currSta, t);
         }
         /* Set up starting station & curr station index */
         tCurrStation.put(t, lines.get(t).getFirst());
-        trainIndex.put(t, 0);
-        trainDirection.put(t, 0);
+        staTrain.put(lines.get(t).getFirst(), t);
+        getStationSync(lines.get(t).getFirst()).occupancy.place(t);
+        state.setTrainIndex(t, 0);
+        state.setTrainDirection(t, 0);
     }
 
-    /*
-     *   configures locks & conditions for each station
-     *   tCondition - train threads are added to this when they need to wait for the station
-     *   to become available;
-     *   pCondition - passenger threads are added to this when they need to wait for trains
-     *   to arrive at the station (then check whether they should board)
-     */
-    public void setUpLocks(Station currSta) {
-        if(!stationLocks.containsKey(currSta)) {
-            Map<Lock, List<Condition>> lockMap = new HashMap<>();
-            Lock stationLock = new ReentrantLock();
-            Condition trains = stationLock.newCondition();
-            Condition passengers = stationLock.newCondition();
-            List<Condition> condList = new ArrayList<>(List.of(trains, passengers));
-            lockMap.put(stationLock, condList);
-            stationLocks.put(currSta, lockMap);
+    /* records that line t serves s at position index (the first position if it serves s twice) */
+    private void indexStation(Station s, Train t, int index) {
+        Map<Train, Integer> served = new LinkedHashMap<>(stationLines.getOrDefault(s, Map.of()));
+        served.putIfAbsent(t, index);
+        stationLines.put(s, Collections.unmodifiableMap(served));
+    }
+
+    /* creates the lock & conditions of a station (see StationSync) unless it has them, and
+       the conditions for line t there */
+    public synchronized void setUpLocks(Station currSta, Train t) {
+        int id = currSta.id();
+        if(id >= stationSyncs.length) {
+            stationSyncs = Arrays.copyOf(stationSyncs, Math.max(Math.max(Station.count(), id + 1), stationSyncs.length * 2));
+        }
+        if(stationSyncs[id] == null) {
+            stationSyncs[id] = new StationSync();
         }
+        stationSyncs[id].serve(t);
     }
 
-    // Adds a new planned journey to the simulation
+    // Adds a new planned journey to the simulation; consecutive stops that share no line
+    // are expanded into legs through transfer stations
     public void addJourney(String name, List<String> stations) {
         Passenger p = Passenger.make(name);
-        journeys.putIfAbsent(p, new ArrayList<>());
+        List<Station> planned = journeys.computeIfAbsent(p, k -> new ArrayList<>(stations.size()));
         for(String station : stations) {
             Station currSta = Station.make(station);
-            journeys.get(p).add(currSta);
+            /* no single line between the two stops, so insert the transfer stations */
+            if(!planned.isEmpty() && getLineServing(planned.getLast(), currSta) == null) {
+                List<Station> route = getPlanner().route(planned.getLast(), currSta);
+                if(route == null) {
+                    throw new RuntimeException("No route from " + planned.getLast() + " to " + currSta
+                            + " for passenger " + p);
+                }
+                planned.addAll(route.subList(1, route.size() - 1));
+            }
+            planned.add(currSta);
         }
         /* Set up starting station */
         staPassengers.get(journeys.get(p).getFirst()).add(p);
-        pIndex.put(p, 0);
+        state.setPassengerIndex(p, 0);
         pCurrStation.put(p, journeys.get(p).getFirst());
     }
 
@@ -132,7 +167,6 @@ public class MBTA {
         /* if any passengers have any stations remaining */
         for(Passenger p : journeys.keySet()) {
             Station end = journeys.get(p).getLast();
-            int pCurrIndex = pIndex.get(p);
             if(!staPassengers.get(end).contains(p)) {
                 throw new RuntimeException("Passenger " + p + " is not at their final destination");
             }
@@ -143,40 +177,195 @@ public class MBTA {
     public void reset() {
         lines.clear();
         journeys.clear();
+        stationLines.clear();
+        planner = null;
         tCurrStation.clear();
+        staTrain.clear();
         pCurrStation.clear();
-        trainIndex.clear();
-        pIndex.clear();
+        state.clear();
         trainPassengers.clear();
+        pTrain.clear();
         staPassengers.clear();
         trainMapping.clear();
         passengerMapping.clear();
-        stationLocks.clear();
+        trainSyncs.clear();
+        synchronized(this) {
+            Arrays.fill(stationSyncs, null);
+        }
+        metrics.clear();
         Train.clearCache();
         Station.clearCache();
         Passenger.clearCache();
     }
 
-    // adds simulation configuration from a file
-    public void loadConfig(String filename) {
-        try {
-            String fileInJson = new String(Files.readAllBytes(Paths.get(filename)));
-            Gson gson = new Gson();
-            MBTAJson mbtaJson = gson.fromJson(fileInJson, MBTAJson.class);
-
-            for(Map.Entry<String, List<String>> line : mbtaJson.lines.entrySet()) {
-                String lineName = line.getKey();
-                List<String> stations = line.getValue();
-                addLine(lineName, stations);
+    // where every train and passenger is now, after the first events events of the run;
+    // no train or passenger may move while it is taken
+    public Snapshot snapshot(long events) {
+        List<Snapshot.TrainState> trains = new ArrayList<>(lines.size());
+        for(Train t : lines.keySet()) {
+            trains.add(new Snapshot.TrainState(t, state.trainIndex(t), state.trainDirection(t)));
+        }
+        List<Snapshot.PassengerState> passengers = new ArrayList<>(journeys.size());
+        for(Passenger p : journeys.keySet()) {
+            passengers.add(new Snapshot.PassengerState(p, state.passengerIndex(p), pTrain.get(p)));
+        }
+        return new Snapshot(events, trains, passengers);
+    }
+
+    // hash of where every train and passenger is, see DigestEvent
+    public long digest() {
+        long digest = 0;
+        for(Train t : lines.keySet()) {
+            digest += DigestEvent.train(t, state.trainIndex(t), state.trainDirection(t));
+        }
+        for(Passenger p : journeys.keySet()) {
+            digest += DigestEvent.passenger(p, state.passengerIndex(p), pTrain.get(p));
+        }
+        return digest;
+    }
+
+    // puts every train and passenger where snapshot has them; this must hold the config the
+    // snapshot was taken from, and no run may be going on
+    public synchronized void restore(Snapshot snapshot) {
+        if(snapshot.trains.size() != lines.size() || snapshot.passengers.size() != journeys.size()) {
+            throw new RuntimeException("Snapshot of " + snapshot.trains.size() + " lines and " + snapshot.passengers.size()
+                    + " passengers doesn't match a config of " + lines.size() + " and " + journeys.size());
+        }
+        /* take everyone off the network first, as a train may be restored to where another starts */
+        for(Train t : lines.keySet()) {
+            Station at = tCurrStation.remove(t);
+            if(at == null) continue;
+            staTrain.remove(at, t);
+            Occupancy occupancy = getStationSync(at).occupancy;
+            if(t.equals(occupancy.occupant())) occupancy.release(t);
+            trainPassengers.get(t).clear();
+        }
+        staPassengers.values().forEach(List::clear);
+        pTrain.clear();
+        for(Snapshot.TrainState ts : snapshot.trains) {
+            List<Station> line = lines.get(ts.t());
+            if(line == null || ts.index() < 0 || ts.index() >= line.size() || (ts.direction() & ~1) != 0) {
+                throw new RuntimeException("Snapshot puts line " + ts.t() + " at " + ts.index() + " heading " + ts.direction());
+            }
+            Station at = line.get(ts.index());
+            if(staTrain.putIfAbsent(at, ts.t()) != null) {
+                throw new RuntimeException("Snapshot puts two trains at " + at);
             }
-            for(Map.Entry<String, List<String>> journey : mbtaJson.trips.entrySet()) {
-                String passengerName = journey.getKey();
-                List<String> stations = journey.getValue();
-                addJourney(passengerName, stations);
+            tCurrStation.put(ts.t(), at);
+            getStationSync(at).occupancy.place(ts.t());
+            state.setTrainIndex(ts.t(), ts.index());
+            state.setTrainDirection(ts.t(), ts.direction());
+        }
+        for(Snapshot.PassengerState ps : snapshot.passengers) {
+            List<Station> journey = journeys.get(ps.p());
+            if(journey == null || ps.index() < 0 || ps.index() >= journey.size()) {
+                throw new RuntimeException("Snapshot puts passenger " + ps.p() + " at stop " + ps.index());
+            }
+            Station at = journey.get(ps.index());
+            pCurrStation.put(ps.p(), at);
+            state.setPassengerIndex(ps.p(), ps.index());
+            if(ps.on() == null) {
+                staPassengers.get(at).add(ps.p());
+            } else {
+                trainPassengers.get(ps.on()).add(ps.p());
+                pTrain.put(ps.p(), ps.on());
             }
+        }
+    }
+
+    // adds simulation configuration from a file
+    public void loadConfig(String filename) {
+        long start = System.nanoTime();
+        try(JsonReader in = new JsonReader(Files.newBufferedReader(Paths.get(filename)))) {
+            loadConfig(in);
         } catch (IOException e) {
           System.out.println("Error reading config file: " + e.getMessage());
         }
+        metrics.loadNanos = System.nanoTime() - start;
+    }
+
+    /*
+     *   Adds each line and journey as it is parsed, so the config is never held whole: not as
+     *   text, nor as MBTAJson maps. Journeys are planned over the lines, so trips that come
+     *   before "lines" are held until the lines have been added. An optional "hints" object,
+     *   {"lines": n, "stations": n, "passengers": n}, sizes the per-entity state up front
+     *   (see reserve); other unknown names are skipped, as Gson did.
+     */
+    public void loadConfig(JsonReader in) throws IOException {
+        List<Map.Entry<String, List<String>>> early = new ArrayList<>();
+        boolean linesAdded = false;
+        in.beginObject();
+        while(in.hasNext()) {
+            switch(in.nextName()) {
+                case "hints" -> reserve(in);
+                case "lines" -> {
+                    in.beginObject();
+                    while(in.hasNext()) addLine(in.nextName(), readStations(in));
+                    in.endObject();
+                    linesAdded = true;
+                    for(Map.Entry<String, List<String>> trip : early) addJourney(trip.getKey(), trip.getValue());
+                    early.clear();
+                }
+                case "trips" -> {
+                    in.beginObject();
+                    while(in.hasNext()) {
+                        String name = in.nextName();
+                        List<String> stations = readStations(in);
+                        if(linesAdded) {
+                            addJourney(name, stations);
+                        } else {
+                            early.add(Map.entry(name, stations));
+                        }
+                    }
+                    in.endObject();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        for(Map.Entry<String, List<String>> trip : early) addJourney(trip.getKey(), trip.getValue());
+    }
+
+    /*
+     *   Makes room for this many more lines, stations and passengers, so that loading a large
+     *   config grows the entity registries, SimState and per-passenger maps once instead of
+     *   doubling them all the way up. Call it before the entities are added.
+     */
+    public synchronized void reserve(int lines, int stations, int passengers) {
+        Train.reserve(lines);
+        Station.reserve(stations);
+        Passenger.reserve(passengers);
+        state.reserve(lines, passengers);
+        if(Station.count() + stations > stationSyncs.length) {
+            stationSyncs = Arrays.copyOf(stationSyncs, Station.count() + stations);
+        }
+        if(pCurrStation.isEmpty()) pCurrStation = new ConcurrentHashMap<>(passengers);
+        if(pTrain.isEmpty()) pTrain = new ConcurrentHashMap<>(passengers);
+        if(passengerMapping.isEmpty()) passengerMapping = HashMap.newHashMap(passengers);
+    }
+
+    private static List<String> readStations(JsonReader in) throws IOException {
+        List<String> stations = new ArrayList<>();
+        in.beginArray();
+        while(in.hasNext()) stations.add(in.nextString());
+        in.endArray();
+        return stations;
+    }
+
+    /* reads a "hints" object; counts it doesn't give are taken as 0 */
+    private void reserve(JsonReader in) throws IOException {
+        int lines = 0, stations = 0, passengers = 0;
+        in.beginObject();
+        while(in.hasNext()) {
+            switch(in.nextName()) {
+                case "lines" -> lines = in.nextInt();
+                case "stations" -> stations = in.nextInt();
+                case "passengers" -> passengers = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        reserve(lines, stations, passengers);
     }
 
     /* helper functions */
@@ -190,15 +379,12 @@ public class MBTA {
     }
 
     public Train getTrainAtSta(Station s) {
-        for(Train t : tCurrStation.keySet()) {
-            if(tCurrStation.get(t).equals(s)) return t;
-        }
-        return null;
+        return staTrain.get(s);
     }
 
     public Station getTNextStation(Train t) {
-        int direction = trainDirection.get(t);
-        int currIndex = trainIndex.get(t);
+        int direction = state.trainDirection(t);
+        int currIndex = state.trainIndex(t);
         /* treat start and end stations distinctly */
         if(currIndex == 0) return lines.get(t).get(currIndex + 1);      // start
         if(currIndex == lines.get(t).size() - 1) {
@@ -212,38 +398,46 @@ public class MBTA {
     }
 
     public Station getPNextStation(Passenger p) {
-        int currIndex = pIndex.get(p);
+        int currIndex = state.passengerIndex(p);
         List<Station> stations = journeys.get(p);
         if(currIndex >= stations.size() - 1) return null;
         return stations.get(currIndex + 1);
     }
 
     public boolean getStaAvailability(Station dst) {
-        for(Station curr : tCurrStation.values()) {
-            if(curr.equals(dst)) return false;
-        }
-        return true;
+        return !staTrain.containsKey(dst);
     }
 
+    /*
+     *   replay calls this from its only thread. A live train (TransitTrain) calls it holding
+     *   prev's lock and its Occupancy claim on next, but not next's lock. Holding prev's lock,
+     *   no passenger can board t at prev once the move is logged. The claim keeps every other
+     *   train off next. A passenger under next's lock acts on t only once it reads t at next:
+     *   riders through tCurrStation and boarders through staTrain. Both are set first, and the
+     *   concurrent maps publish them. The rest of the move (prev's entry, t's index and
+     *   direction) is read only by t's own thread.
+     */
     public void moveTrain(Train t, Station prev, Station next) {
-        tCurrStation.put(t, next);
-        int currIndex = trainIndex.get(t);
-        int currDir = trainDirection.get(t);
+        Station left = tCurrStation.put(t, next);
+        staTrain.put(next, t);
+        if(left != null) staTrain.remove(left, t);
+        int currIndex = state.trainIndex(t);
+        int currDir = state.trainDirection(t);
         if (currDir == 0) {
             if (currIndex == lines.get(t).size() - 1) {
                 /* reverses direction from front to back */
-                trainIndex.put(t, currIndex - 1);
-                trainDirection.put(t, 1);
+                state.setTrainIndex(t, currIndex - 1);
+                state.setTrainDirection(t, 1);
             } else {
-                trainIndex.put(t, currIndex + 1);
+                state.setTrainIndex(t, currIndex + 1);
             }
         } else if (currDir == 1) {
             if (currIndex == 0) {
                 /* reverses direction from back to front */
-                trainIndex.put(t, currIndex + 1);
-                trainDirection.put(t, 0);
+                state.setTrainIndex(t, currIndex + 1);
+                state.setTrainDirection(t, 0);
             } else {
-                trainIndex.put(t, currIndex - 1);
+                state.setTrainIndex(t, currIndex - 1);
             }
         }
     }
@@ -251,21 +445,22 @@ public class MBTA {
     public void boardPassenger(Train t, Passenger p, Station s) {
         staPassengers.get(s).remove(p);
         trainPassengers.get(t).add(p);
+        pTrain.put(p, t);
     }
 
     public void deboardPassenger(Train t, Passenger p, Station s) {
         trainPassengers.get(t).remove(p);
+        pTrain.remove(p, t);
         staPassengers.get(s).add(p);
         pCurrStation.put(p, s);
-        int currIndex = pIndex.get(p);
-        pIndex.put(p, ++currIndex);
+        state.setPassengerIndex(p, state.passengerIndex(p) + 1);
     }
 
     public int getTrainIndex(Train t) {
-        return trainIndex.get(t);
+        return state.trainIndex(t);
     }
 
-    public List<Passenger> getPassengersOnTrain(Train t) {
+    public Set<Passenger> getPassengersOnTrain(Train t) {
         return trainPassengers.get(t);
     }
 
@@ -274,10 +469,7 @@ public class MBTA {
     }
 
     public Train isPassengerOnTrain(Passenger p) {
-        for(Train t : lines.keySet()) {
-            if(getPassengersOnTrain(t).contains(p)) return t;
-        }
-        return null;
+        return pTrain.get(p);
     }
 
     public TransitTrain getTrainThread(Train t) {
@@ -296,46 +488,83 @@ public class MBTA {
     public boolean isRightTrain(Train t, Passenger p) {
         Station pNext = getPNextStation(p);
         if(pNext == null) return true;
-        int dir = trainDirection.get(t);
-        int currIndex = trainIndex.get(t);
-        List<Station> tStations = lines.get(t);
-        if((dir == 0 && currIndex != tStations.size() - 1) || (dir == 1 && currIndex == 0)) {
-            for(int i = currIndex; i < tStations.size(); i++) {
-                Station curr = tStations.get(i);
-                if(curr.equals(pNext)) return true;
-            }
-        } else {
-            for(int i = currIndex; i >= 0; i--) {
-                Station curr = tStations.get(i);
-                if(curr.equals(pNext)) return true;
-            }
+        Integer pos = getStationIndex(pNext, t);
+        if(pos == null) return false;
+        int dir = state.trainDirection(t);
+        int currIndex = state.trainIndex(t);
+        int last = lines.get(t).size() - 1;
+        if((dir == 0 && currIndex != last) || (dir == 1 && currIndex == 0)) {
+            return pos >= currIndex;
+        }
+        return pos <= currIndex;
+    }
+
+    /* true if no rider of t gets off at s and no passenger at s is waiting to board t */
+    public boolean isBoardingQuiesced(Train t, Station s) {
+        for(Passenger p : trainPassengers.get(t)) {
+            if(s.equals(getPNextStation(p))) return false;
+        }
+        for(Passenger p : staPassengers.get(s)) {
+            if(t.equals(NextTrainToBoard(p, s))) return false;
         }
-        return false;
+        return true;
     }
 
     public Train NextTrainToBoard(Passenger p, Station curr) {
         Station next = getPNextStation(p);
         if(next == null) return null;
-        for(Train t : lines.keySet()) {
-            List<Station> tStations = lines.get(t);
-            if(tStations.contains(next) && tStations.contains(curr)) return t;
+        return getLineServing(curr, next);
+    }
+
+    /* the first line (in the order lines were added) serving both a and b, or null */
+    public Train getLineServing(Station a, Station b) {
+        Map<Train, Integer> servesA = stationLines.get(a);
+        Map<Train, Integer> servesB = stationLines.get(b);
+        if(servesA == null || servesB == null) return null;
+        for(Train t : servesA.keySet()) {
+            if(servesB.containsKey(t)) return t;
         }
         return null;
     }
 
-    public Lock getStationLock(Station s) {
-        return (Lock) stationLocks.get(s).keySet().toArray()[0];
+    /* lines serving s, in the order they were added */
+    public Set<Train> getLinesServing(Station s) {
+        return stationLines.getOrDefault(s, Map.of()).keySet();
+    }
+
+    public RoutePlanner getPlanner() {
+        RoutePlanner curr = planner;
+        if(curr == null) {
+            curr = new RoutePlanner(this);
+            planner = curr;
+        }
+        return curr;
+    }
+
+    /* position of s on line t, or null if t doesn't serve s */
+    public Integer getStationIndex(Station s, Train t) {
+        Map<Train, Integer> served = stationLines.get(s);
+        return served == null ? null : served.get(t);
+    }
+
+    public SimMetrics metrics() {
+        return metrics;
     }
 
-    public Condition getTConditionAtS(Station s) {
-        Map<Lock, List<Condition>> sta = stationLocks.get(s);
-        Lock trainLock = sta.keySet().iterator().next();
-        return sta.get(trainLock).getFirst();
+    /* the lock & conditions of s; resolve it once per station rather than per acquisition */
+    public StationSync getStationSync(Station s) {
+        return stationSyncs[s.id()];
+    }
+
+    public TrainSync getTrainSync(Train t) {
+        return trainSyncs.get(t);
+    }
+
+    public Lock getStationLock(Station s) {
+        return getStationSync(s).lock;
     }
 
-    public Condition getPConditionAtS(Station s) {
-        Map<Lock, List<Condition>> sta = stationLocks.get(s);
-        Lock trainLock = sta.keySet().iterator().next();
-        return sta.get(trainLock).getLast();
+    public Condition getDConditionAtS(Station s) {
+        return getStationSync(s).departure;
     }
 }
@@ -2,7 +2,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-/* used to temporarily store info converted from JSON strings */
+/* the shape of a config file; MBTA.loadConfig streams it rather than reading it into one of these */
 public class MBTAJson {
 
     Map<String, List<String>> lines = new HashMap<>();
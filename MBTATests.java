@@ -1,5 +1,8 @@
+import com.google.gson.stream.JsonReader;
 import org.junit.*;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,4 +41,69 @@ public class MBTATests {
         List<Passenger> startStationPassenger = mbta.getStartingStation(anna);
         assert(startStationPassenger.contains(anna));
     }
+
+    @Test
+    public void testStationLineIndex() {
+        MBTA mbta = new MBTA();
+        mbta.addLine("red", List.of("Davis", "Porter", "Harvard", "Central"));
+        mbta.addLine("green", List.of("Lechmere", "Harvard", "Kendall"));
+        mbta.addJourney("Anna", List.of("Porter", "Central", "Harvard", "Kendall"));
+        Train red = Train.make("red");
+        Train green = Train.make("green");
+        Passenger anna = Passenger.make("Anna");
+        /* positions are per line */
+        assert(mbta.getStationIndex(Station.make("Harvard"), red) == 2);
+        assert(mbta.getStationIndex(Station.make("Harvard"), green) == 1);
+        assert(mbta.getStationIndex(Station.make("Kendall"), red) == null);
+        /* only red serves Porter and Central */
+        assert(mbta.NextTrainToBoard(anna, Station.make("Porter")).equals(red));
+        assert(mbta.getLineServing(Station.make("Harvard"), Station.make("Kendall")).equals(green));
+        assert(mbta.getLineServing(Station.make("Davis"), Station.make("Kendall")) == null);
+        /* red starts at Davis heading towards Central */
+        assert(mbta.isRightTrain(red, anna));
+        assert(!mbta.isRightTrain(green, anna));
+        mbta.reset();
+    }
+
+    /* Anna's stops share no line, so her journey is expanded through the transfer stations */
+    @Test
+    public void testJourneyPlanning() {
+        MBTA mbta = new MBTA();
+        mbta.addLine("red", List.of("Alewife", "Davis", "Porter", "Harvard"));
+        mbta.addLine("green", List.of("Lechmere", "Harvard", "Kendall"));
+        mbta.addLine("blue", List.of("Kendall", "Aquarium", "Airport"));
+        mbta.addJourney("Anna", List.of("Davis", "Airport"));
+        Passenger anna = Passenger.make("Anna");
+        List<Station> expected = List.of(Station.make("Davis"), Station.make("Harvard"),
+                Station.make("Kendall"), Station.make("Airport"));
+        assert(mbta.journeys.get(anna).equals(expected));
+        mbta.reset();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnreachableJourney() {
+        MBTA mbta = new MBTA();
+        mbta.addLine("red", List.of("Alewife", "Davis"));
+        mbta.addLine("blue", List.of("Aquarium", "Airport"));
+        try {
+            mbta.addJourney("Anna", List.of("Davis", "Airport"));
+        } finally {
+            mbta.reset();
+        }
+    }
+
+    /* trips before the lines are held until the lines are in; hints and unknown names are fine */
+    @Test
+    public void testStreamingConfig() throws IOException {
+        MBTA mbta = new MBTA(SimState.arrays());
+        String config = "{\"trips\": {\"Anna\": [\"Davis\", \"Kendall\"]}, \"comment\": [1, 2],"
+                + " \"hints\": {\"lines\": 2, \"stations\": 5, \"passengers\": 1},"
+                + " \"lines\": {\"red\": [\"Davis\", \"Porter\", \"Harvard\"], \"green\": [\"Lechmere\", \"Harvard\", \"Kendall\"]}}";
+        mbta.loadConfig(new JsonReader(new StringReader(config)));
+        Passenger anna = Passenger.make("Anna");
+        assert(mbta.lines.size() == 2);
+        assert(mbta.journeys.get(anna).equals(List.of(Station.make("Davis"), Station.make("Harvard"), Station.make("Kendall"))));
+        mbta.checkStart();
+        mbta.reset();
+    }
 }
@@ -0,0 +1,53 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* SimState over ConcurrentHashMaps keyed by entity, as MBTA originally kept it */
+public class MapSimState implements SimState {
+
+    private final Map<Train, Integer> trainIndex = new ConcurrentHashMap<>();
+    private final Map<Train, Integer> trainDirection = new ConcurrentHashMap<>();
+    // replaced by reserve while still empty
+    private Map<Passenger, Integer> pIndex = new ConcurrentHashMap<>();
+
+    @Override
+    public int trainIndex(Train t) {
+        return trainIndex.getOrDefault(t, 0);
+    }
+
+    @Override
+    public void setTrainIndex(Train t, int index) {
+        trainIndex.put(t, index);
+    }
+
+    @Override
+    public int trainDirection(Train t) {
+        return trainDirection.getOrDefault(t, 0);
+    }
+
+    @Override
+    public void setTrainDirection(Train t, int direction) {
+        trainDirection.put(t, direction);
+    }
+
+    @Override
+    public int passengerIndex(Passenger p) {
+        return pIndex.getOrDefault(p, 0);
+    }
+
+    @Override
+    public void setPassengerIndex(Passenger p, int index) {
+        pIndex.put(p, index);
+    }
+
+    @Override
+    public void reserve(int trains, int passengers) {
+        if(pIndex.isEmpty()) pIndex = new ConcurrentHashMap<>(passengers);
+    }
+
+    @Override
+    public void clear() {
+        trainIndex.clear();
+        trainDirection.clear();
+        pIndex.clear();
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ *   Benchmark for passenger-to-train membership on a crowded config (50k passengers by
+ *   default): MBTA.isPassengerOnTrain with every passenger on board, a deboard+board round
+ *   trip, and an end-to-end DiscreteSim run without console echo.
+ *
+ *   usage: java MembershipBench [passengers]
+ */
+public class MembershipBench {
+
+    private static final int LINES = 20;
+    private static final int STATIONS_PER_LINE = 10;
+
+    public static void main(String[] args) {
+        int passengers = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        MBTA mbta = build(passengers);
+        Passenger[] ps = new Passenger[passengers];
+        Train[] ts = new Train[passengers];
+        Station[] starts = new Station[passengers];
+        for(int p = 0; p < passengers; p++) {
+            ps[p] = Passenger.make("P" + p);
+            ts[p] = Train.make("line" + (p % LINES));
+            starts[p] = mbta.getPCurrStation(ps[p]);
+            mbta.boardPassenger(ts[p], ps[p], starts[p]);
+        }
+        double onTrain = Bench.nsPerOp(200_000, i -> mbta.isPassengerOnTrain(ps[(i * 7919) % passengers]));
+        double roundTrip = Bench.nsPerOp(20_000, i -> {
+            int p = (i * 7919) % passengers;
+            mbta.deboardPassenger(ts[p], ps[p], starts[p]);
+            mbta.boardPassenger(ts[p], ps[p], starts[p]);
+            return ps[p];
+        });
+        mbta.reset();
+
+        MBTA fresh = build(passengers);
+        Log log = new Log(false);
+        long start = System.nanoTime();
+        DiscreteSim.run(fresh, log);
+        log.flush();
+        long simMs = (System.nanoTime() - start) / 1_000_000;
+        log.close();
+        fresh.reset();
+
+        System.out.printf("passengers: %d%n", passengers);
+        System.out.printf("isPassengerOnTrain:      %10.1f ns/op%n", onTrain);
+        System.out.printf("deboard + board:         %10.1f ns/op%n", roundTrip);
+        System.out.printf("DiscreteSim end-to-end:  %10d ms%n", simMs);
+    }
+
+    /* LINES disjoint lines, each passenger rides one hop on line p % LINES */
+    private static MBTA build(int passengers) {
+        MBTA mbta = new MBTA();
+        for(int l = 0; l < LINES; l++) {
+            List<String> stations = new ArrayList<>();
+            for(int s = 0; s < STATIONS_PER_LINE; s++) stations.add("L" + l + "S" + s);
+            mbta.addLine("line" + l, stations);
+        }
+        for(int p = 0; p < passengers; p++) {
+            int l = p % LINES;
+            int from = (p / LINES) % STATIONS_PER_LINE;
+            int to = (from + 1) % STATIONS_PER_LINE;
+            mbta.addJourney("P" + p, List.of("L" + l + "S" + from, "L" + l + "S" + to));
+        }
+        return mbta;
+    }
+}
@@ -0,0 +1,140 @@
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.util.*;
+
+/*
+ *   Seeded generator of synthetic networks and ridership, written as MBTAJson configs that
+ *   loadConfig (and so ./sim and ./verify) read like any other.
+ *
+ *   Line l has stations L<l>S0 .. L<l>S<length-1>. Its odd positions may instead be an odd
+ *   position of an earlier line, which makes that station an interchange: every line after the
+ *   first takes one such station so that the network is connected and every journey routable,
+ *   and each further odd position is one with probability interchange. Interchanges are thus
+ *   never next to each other nor where a line starts, so a train holding one only ever waits
+ *   for a station of its own line and no set of trains can deadlock.
+ *
+ *   Passenger P<p> travels between stops stations drawn uniformly, consecutive ones distinct;
+ *   addJourney plans the transfers. Only the network is held in memory, trips are written as
+ *   they are drawn, so the passenger count is bounded by disk rather than heap. The counts
+ *   go first as loadConfig's "hints".
+ *
+ *   usage: java NetGen [--seed n] [--lines n] [--length n] [--interchange p] [--passengers n] [--stops n] <out.json>
+ */
+public class NetGen {
+
+    private final Random random;
+    private final List<List<String>> lines = new ArrayList<>();
+    private final List<String> stations = new ArrayList<>();
+
+    public NetGen(long seed, int lines, int length, double interchange) {
+        if(lines < 1 || length < 2) {
+            throw new RuntimeException("Need at least one line of two stations, got " + lines + " of " + length);
+        }
+        random = new Random(seed);
+        for(int l = 0; l < lines; l++) {
+            List<String> line = new ArrayList<>();
+            /* the odd position joined to an earlier line, keeping the network connected */
+            int link = l == 0 ? -1 : 1 + 2 * random.nextInt(length / 2);
+            for(int s = 0; s < length; s++) {
+                String shared = null;
+                if(s % 2 == 1 && (s == link || (l > 0 && random.nextDouble() < interchange))) {
+                    shared = sharedStation(l);
+                }
+                /* a station the line already has joins it to the earlier lines anyway */
+                if(shared == null || line.contains(shared)) {
+                    shared = "L" + l + "S" + s;
+                    stations.add(shared);
+                }
+                line.add(shared);
+            }
+            this.lines.add(line);
+        }
+    }
+
+    /* a station at an odd position of a line before l */
+    private String sharedStation(int l) {
+        List<String> other = lines.get(random.nextInt(l));
+        return other.get(1 + 2 * random.nextInt(other.size() / 2));
+    }
+
+    public List<List<String>> lines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public int stationCount() {
+        return stations.size();
+    }
+
+    /* writes the network and passengers journeys of stops stations each */
+    public void write(Writer out, int passengers, int stops) throws IOException {
+        if(stops < 2) {
+            throw new RuntimeException("A journey needs at least two stops, got " + stops);
+        }
+        JsonWriter jw = new JsonWriter(out);
+        jw.beginObject();
+        /* first, so that loadConfig can size its state before reading the rest */
+        jw.name("hints").beginObject();
+        jw.name("lines").value(lines.size());
+        jw.name("stations").value(stations.size());
+        jw.name("passengers").value(passengers);
+        jw.endObject();
+        jw.name("lines").beginObject();
+        for(int l = 0; l < lines.size(); l++) {
+            jw.name("line" + l).beginArray();
+            for(String s : lines.get(l)) jw.value(s);
+            jw.endArray();
+        }
+        jw.endObject();
+        jw.name("trips").beginObject();
+        for(int p = 0; p < passengers; p++) {
+            jw.name("P" + p).beginArray();
+            int prev = -1;
+            for(int k = 0; k < stops; k++) {
+                int s = random.nextInt(stations.size() - 1);
+                /* skip over the previous stop so consecutive stops differ */
+                if(prev >= 0 && s >= prev) s++;
+                jw.value(stations.get(s));
+                prev = s;
+            }
+            jw.endArray();
+        }
+        jw.endObject();
+        jw.endObject();
+        jw.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int lines = 8, length = 10, passengers = 1_000, stops = 2;
+        double interchange = 0.2;
+        String out = null;
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].startsWith("--") && i + 1 < args.length) {
+                String value = args[++i];
+                switch(args[i - 1]) {
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--lines" -> lines = Integer.parseInt(value);
+                    case "--length" -> length = Integer.parseInt(value);
+                    case "--interchange" -> interchange = Double.parseDouble(value);
+                    case "--passengers" -> passengers = Integer.parseInt(value);
+                    case "--stops" -> stops = Integer.parseInt(value);
+                    default -> usage();
+                }
+            } else if(out == null) {
+                out = args[i];
+            }
+        }
+        if(out == null) usage();
+        NetGen gen = new NetGen(seed, lines, length, interchange);
+        try(Writer w = new BufferedWriter(new FileWriter(out), 1 << 16)) {
+            gen.write(w, passengers, stops);
+        }
+        System.err.println(gen.stationCount() + " stations on " + lines + " lines, " + passengers + " passengers -> " + out);
+    }
+
+    private static void usage() {
+        System.out.println("usage: java NetGen [--seed n] [--lines n] [--length n] [--interchange p] [--passengers n] [--stops n] <out.json>");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,72 @@
+import org.junit.*;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NetGenTests {
+
+    private File config;
+
+    @Before
+    public void setUp() throws IOException {
+        config = File.createTempFile("netgen", ".json");
+    }
+
+    @After
+    public void tearDown() {
+        config.delete();
+    }
+
+    private String generate(long seed, int passengers) throws IOException {
+        StringWriter out = new StringWriter();
+        new NetGen(seed, 6, 9, 0.5).write(out, passengers, 3);
+        return out.toString();
+    }
+
+    /* the same seed gives the same config */
+    @Test
+    public void testSeeded() throws IOException {
+        assert(generate(7, 100).equals(generate(7, 100)));
+        assert(!generate(7, 100).equals(generate(8, 100)));
+    }
+
+    /* lines start apart, interchanges are never next to each other, and every line is reached */
+    @Test
+    public void testTopology() {
+        NetGen gen = new NetGen(3, 12, 8, 0.6);
+        Map<String, Integer> linesAt = new HashMap<>();
+        for(List<String> line : gen.lines()) {
+            for(String s : line) linesAt.merge(s, 1, Integer::sum);
+        }
+        for(List<String> line : gen.lines()) {
+            assert(linesAt.get(line.getFirst()) == 1);
+            for(int i = 1; i < line.size(); i++) {
+                assert(linesAt.get(line.get(i - 1)) == 1 || linesAt.get(line.get(i)) == 1);
+            }
+        }
+        for(int l = 1; l < gen.lines().size(); l++) {
+            assert(gen.lines().get(l).stream().anyMatch(s -> linesAt.get(s) > 1));
+        }
+        assert(gen.stationCount() == linesAt.size());
+    }
+
+    /* a generated config loads, routes every journey, and simulates to a log that verifies */
+    @Test(timeout = 10000)
+    public void testLoadsAndVerifies() throws IOException {
+        try(Writer w = new FileWriter(config)) {
+            new NetGen(11, 6, 9, 0.5).write(w, 200, 3);
+        }
+        MBTA mbta = new MBTA();
+        mbta.loadConfig(config.getPath());
+        assert(mbta.lines.size() == 6 && mbta.journeys.size() == 200);
+        Log log = new Log(false);
+        Sim.run_sim(mbta, log, Sim.Mode.DISCRETE);
+        log.close();
+        mbta.reset();
+        mbta.loadConfig(config.getPath());
+        Verify.verify(mbta, log);
+        mbta.reset();
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*
+ *   Which train is at a station, claimed by compare-and-set so that no two trains are ever at
+ *   it at once.
+ *
+ *   A train claiming a free station with nobody queued for it takes it with a single CAS, no
+ *   lock. Otherwise the train queues and parks. release empties the station and unparks the
+ *   train at the head of the queue, and only the head may take a station others are queued
+ *   for, so waiting trains enter in the order they arrived. A train that queues tells the
+ *   caller which train holds the station, so that it can be woken if idle (see TrainSync).
+ */
+public final class Occupancy {
+
+    private record Waiter(Thread thread, Train train) {}
+
+    private final AtomicReference<Train> occupant = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /* puts t here without waiting, for the train that starts its line here */
+    public void place(Train t) {
+        occupant.set(t);
+    }
+
+    /* waits until the station is free and t's turn has come, then takes it for t */
+    public void claim(Train t) throws InterruptedException {
+        claim(t, holder -> {});
+    }
+
+    /*
+     *   as claim(t), but if t has to queue, queued is given the train at the station once t is
+     *   in the queue; a train taking the station later finds t queued (hasWaiters)
+     */
+    public void claim(Train t, Consumer<Train> queued) throws InterruptedException {
+        if(waiters.isEmpty() && occupant.compareAndSet(null, t)) return;
+        Waiter me = new Waiter(Thread.currentThread(), t);
+        waiters.add(me);
+        Train holder = occupant.get();
+        if(holder != null) queued.accept(holder);
+        /* release unparks the head after emptying the station, so re-check before each park */
+        while(waiters.peek() != me || !occupant.compareAndSet(null, t)) {
+            if(Thread.interrupted()) {
+                waiters.remove(me);
+                /* a release may have woken only us; pass the turn on */
+                wakeHead();
+                throw new InterruptedException();
+            }
+            LockSupport.park(this);
+        }
+        waiters.remove(me);
+    }
+
+    /* t leaves the station; the next train queued for it, if any, may now take it */
+    public void release(Train t) {
+        if(!occupant.compareAndSet(t, null)) {
+            throw new RuntimeException("Train " + t + " is not at the station it is leaving, " + occupant.get() + " is");
+        }
+        wakeHead();
+    }
+
+    private void wakeHead() {
+        Waiter head = waiters.peek();
+        if(head != null) LockSupport.unpark(head.thread());
+    }
+
+    /* the train at the station, or null */
+    public Train occupant() {
+        return occupant.get();
+    }
+
+    /* whether any train is queued for the station */
+    public boolean hasWaiters() {
+        return !waiters.isEmpty();
+    }
+
+    /* the trains queued for the station, first in line first */
+    public List<Train> waiting() {
+        List<Train> trains = new ArrayList<>();
+        for(Waiter w : waiters) trains.add(w.train());
+        return trains;
+    }
+}
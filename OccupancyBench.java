@@ -0,0 +1,39 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ *   Microbenchmark for MBTA.getTrainAtSta and MBTA.getStaAvailability as the number of
+ *   lines grows. Each line has its own stations, and lookups hit random stations.
+ *
+ *   usage: java OccupancyBench [line counts...]
+ */
+public class OccupancyBench {
+
+    private static final int STATIONS_PER_LINE = 4;
+    private static final int ITERATIONS = 2_000_000;
+
+    public static void main(String[] args) {
+        List<Integer> sizes = new ArrayList<>();
+        for(String a : args) sizes.add(Integer.parseInt(a));
+        if(sizes.isEmpty()) sizes = List.of(5, 50, 500, 5_000);
+
+        System.out.printf("%-6s %22s %26s%n", "lines", "getTrainAtSta (ns/op)", "getStaAvailability (ns/op)");
+        for(int n : sizes) {
+            MBTA mbta = new MBTA();
+            Station[] stations = new Station[n * STATIONS_PER_LINE];
+            for(int l = 0; l < n; l++) {
+                List<String> names = new ArrayList<>();
+                for(int s = 0; s < STATIONS_PER_LINE; s++) names.add("L" + l + "S" + s);
+                mbta.addLine("line" + l, names);
+                for(int s = 0; s < STATIONS_PER_LINE; s++) {
+                    stations[l * STATIONS_PER_LINE + s] = Station.make(names.get(s));
+                }
+            }
+            int mask = Integer.highestOneBit(stations.length) - 1;
+            double trainAt = Bench.nsPerOp(ITERATIONS, i -> mbta.getTrainAtSta(stations[(i * 31) & mask]));
+            double avail = Bench.nsPerOp(ITERATIONS, i -> mbta.getStaAvailability(stations[(i * 31) & mask]));
+            System.out.printf("%-6d %22.1f %26.1f%n", n, trainAt, avail);
+            mbta.reset();
+        }
+    }
+}
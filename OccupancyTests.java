@@ -0,0 +1,155 @@
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OccupancyTests {
+
+    @After
+    public void tearDown() {
+        Sim.clearThreads();
+        Train.clearCache();
+        Station.clearCache();
+        Passenger.clearCache();
+    }
+
+    /* trains hammering a few stations are never two at one of them */
+    @Test(timeout = 30000)
+    public void testNeverTwoTrains() throws InterruptedException {
+        int trains = 8, stations = 3, claims = 20_000;
+        Occupancy[] occupancies = new Occupancy[stations];
+        AtomicInteger[] inside = new AtomicInteger[stations];
+        for(int s = 0; s < stations; s++) {
+            occupancies[s] = new Occupancy();
+            inside[s] = new AtomicInteger();
+        }
+        AtomicInteger violations = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < trains; i++) {
+            Train t = Train.make("stress" + i);
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    for(int c = 0; c < claims; c++) {
+                        int s = random.nextInt(stations);
+                        occupancies[s].claim(t);
+                        if(inside[s].incrementAndGet() != 1 || occupancies[s].occupant() != t) {
+                            violations.incrementAndGet();
+                        }
+                        if(random.nextInt(8) == 0) Thread.yield();
+                        inside[s].decrementAndGet();
+                        occupancies[s].release(t);
+                    }
+                } catch(InterruptedException e) {
+                    violations.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread t : threads) t.join();
+        assert(violations.get() == 0);
+        for(Occupancy o : occupancies) {
+            assert(o.occupant() == null && o.waiting().isEmpty());
+        }
+    }
+
+    /* queued trains get the station in the order they asked for it */
+    @Test(timeout = 10000)
+    public void testFifo() throws InterruptedException {
+        Occupancy o = new Occupancy();
+        Train first = Train.make("first");
+        o.place(first);
+        List<Train> order = Collections.synchronizedList(new ArrayList<>());
+        List<Train> queued = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            Train t = Train.make("queued" + i);
+            queued.add(t);
+            Thread thread = new Thread(() -> {
+                try {
+                    o.claim(t);
+                    order.add(t);
+                    o.release(t);
+                } catch(InterruptedException e) {
+                    return;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+            while(o.waiting().size() < i + 1) Thread.yield();
+        }
+        assert(o.waiting().equals(queued));
+        o.release(first);
+        for(Thread t : threads) t.join();
+        assert(order.equals(queued));
+    }
+
+    /* a queued train interrupted at the head of the line doesn't hold up the ones behind it */
+    @Test(timeout = 10000)
+    public void testInterruptedWaiter() throws InterruptedException {
+        Occupancy o = new Occupancy();
+        Train first = Train.make("first"), quitter = Train.make("quitter"), patient = Train.make("patient");
+        o.place(first);
+        Thread q = new Thread(() -> {
+            try {
+                /* it may win the station before it sees the interrupt, then it just leaves */
+                o.claim(quitter);
+                o.release(quitter);
+            } catch(InterruptedException e) {
+                return;
+            }
+        });
+        q.start();
+        while(o.waiting().size() < 1) Thread.yield();
+        Thread p = new Thread(() -> {
+            try {
+                o.claim(patient);
+            } catch(InterruptedException e) {
+                return;
+            }
+        });
+        p.start();
+        while(o.waiting().size() < 2) Thread.yield();
+        q.interrupt();
+        o.release(first);
+        q.join();
+        p.join();
+        assert(o.occupant() == patient && o.waiting().isEmpty());
+    }
+
+    /* leaving a station the train isn't at is an error */
+    @Test(expected = RuntimeException.class)
+    public void testReleaseByOther() {
+        Occupancy o = new Occupancy();
+        o.place(Train.make("first"));
+        o.release(Train.make("other"));
+    }
+
+    /* lines converging on one station, run on threads, produce a log that verifies, which
+       rejects any move into an occupied station */
+    @Test(timeout = 30000)
+    public void testSharedStationSim() {
+        MBTA mbta = new MBTA();
+        loadHub(mbta);
+        Log log = new Log();
+        Sim.run_sim(mbta, log, Sim.Mode.PLATFORM, SimClock.logical());
+        mbta.reset();
+        loadHub(mbta);
+        Verify.verify(mbta, log);
+    }
+
+    private static void loadHub(MBTA mbta) {
+        for(int l = 0; l < 4; l++) {
+            mbta.addLine("spoke" + l, List.of("T" + l, "hub"));
+        }
+        for(int l = 0; l < 4; l++) {
+            for(int p = 0; p < 10; p++) {
+                mbta.addJourney("out" + l + "_" + p, List.of("hub", "T" + l));
+                mbta.addJourney("in" + l + "_" + p, List.of("T" + l, "hub"));
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+
+/*
+ *   Verifies a binary log on a ForkJoinPool, with the same verdict as Verify.verify.
+ *
+ *   Each check in replayAndCheck depends on one kind of state, so the log is partitioned by
+ *   who owns that state and each partition is replayed on its own:
+ *
+ *   1. per train: its moves, in log order, against its line (is it at s1, is s2 next). This
+ *      yields each train's position after every move, a timeline the later phases read.
+ *   2. per station: arrivals and departures from the train timelines, in log order, for
+ *      the one-train-per-station rule.
+ *   3. per passenger: boards and deboards against their journey, looking up where the
+ *      train was at that point in the log from its timeline.
+ *
+ *   A check at event i only depends on events before i, so every failure found is one the
+ *   sequential verifier would hit if it got that far; the lowest failing index is the one it
+ *   reports, with the same message. Partitions skip events past the lowest failure found so
+ *   far, so a bad log stops early. Grouping event indices by owner is a parallel counting
+ *   sort over chunks of the memory-mapped records.
+ *
+ *   Logs the int-indexed replica can't check (see BinVerify) fall back to BinVerify, as do
+ *   logs with state digests, which depend on every entity at once.
+ */
+public class ParallelVerify {
+
+    private final BinVerify replica;
+    private final ForkJoinPool pool;
+    private final ByteBuffer[] regions;
+    private final int events;
+    private final int trains, passengers, stations;
+
+    // event indices grouped by owner: each train's moves, then each passenger's boards and
+    // deboards, each in log order; owner o's events are byOwner[ownerStart[o] .. ownerStart[o + 1])
+    private int[] byOwner;
+    private int[] ownerStart;
+    // replica ids of each grouped event, so the phases read them in order: s1 and s2 for a
+    // move; the train (~train for a deboard) and the station otherwise
+    private int[] arg1, arg2;
+    // phase 1: moves of each train that passed its own checks, and its position after each
+    // (indexed like byOwner)
+    private int[] validMoves;
+    private int[] posAfter;
+
+    // lowest failing event so far
+    private volatile long failedAt = Long.MAX_VALUE;
+    private String failure;
+    private volatile boolean unsupported;
+
+    private ParallelVerify(BinVerify replica, ForkJoinPool pool, ByteBuffer[] regions, int events) {
+        this.replica = replica;
+        this.pool = pool;
+        this.regions = regions;
+        this.events = events;
+        trains = replica.trains.length;
+        passengers = replica.passengers.length;
+        stations = replica.stations.length;
+    }
+
+    public static void verify(MBTA mbta, Path file) throws IOException {
+        verify(mbta, file, ForkJoinPool.commonPool());
+    }
+
+    public static void verify(MBTA mbta, Path file, ForkJoinPool pool) throws IOException {
+        mbta.checkStart();
+        BinLog.Header header = BinLog.readHeader(file);
+        BinVerify replica = new BinVerify(mbta);
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size() - header.recordsStart();
+            if(length % BinLog.RECORD_BYTES != 0) {
+                throw new RuntimeException("Truncated record at end of binary log");
+            }
+            long events = length / BinLog.RECORD_BYTES;
+            if(!replica.mapLog(header) || events > Integer.MAX_VALUE) {
+                BinVerify.verify(mbta, file);
+                return;
+            }
+            ByteBuffer[] regions = new ByteBuffer[(int) ((length + BinVerify.MAP_BYTES - 1) / BinVerify.MAP_BYTES)];
+            for(int r = 0; r < regions.length; r++) {
+                long off = r * BinVerify.MAP_BYTES;
+                regions[r] = ch.map(FileChannel.MapMode.READ_ONLY, header.recordsStart() + off,
+                        Math.min(BinVerify.MAP_BYTES, length - off));
+            }
+            ParallelVerify v = new ParallelVerify(replica, pool, regions, (int) events);
+            v.groupByOwner();
+            if(v.unsupported) {
+                BinVerify.verify(mbta, file);
+                return;
+            }
+            v.checkTrains();
+            v.checkStations();
+            int unfinished = v.checkPassengers();
+            if(v.failure != null) {
+                throw new RuntimeException(v.failure);
+            }
+            if(unfinished >= 0) {
+                throw new RuntimeException("Passenger " + replica.passengers[unfinished] + " is not at their final destination");
+            }
+        }
+    }
+
+    /* field f (0 = type, 1-3 = ids) of record i; absolute reads, so safe from any thread */
+    private int field(int i, int f) {
+        long off = (long) i * BinLog.RECORD_BYTES + 4L * f;
+        return regions[(int) (off / BinVerify.MAP_BYTES)].getInt((int) (off % BinVerify.MAP_BYTES));
+    }
+
+    /* owner id of record i: its train for a move, trains + its passenger otherwise */
+    private int owner(int i) {
+        int type = field(i, 0);
+        if(type == BinLog.MOVE) return replica.logTrain[field(i, 1)];
+        return trains + replica.logPassenger[field(i, 1)];
+    }
+
+    private synchronized void fail(int index, String message) {
+        if(index < failedAt) {
+            failedAt = index;
+            failure = "Event " + index + " (" + replica.event(field(index, 0), field(index, 1), field(index, 2),
+                    field(index, 3)) + ") failed: " + message;
+        }
+    }
+
+    /* runs body(0 .. n - 1) on the pool, in blocks */
+    private void parallel(int n, IntConsumer body) {
+        int blocks = Math.min(n, pool.getParallelism() * 4);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(int b = 0; b < blocks; b++) {
+            int from = (int) ((long) n * b / blocks), to = (int) ((long) n * (b + 1) / blocks);
+            tasks.add(() -> {
+                for(int i = from; i < to; i++) body.accept(i);
+                return null;
+            });
+        }
+        for(Future<Void> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch(ExecutionException e) {
+                if(e.getCause() instanceof RuntimeException re) throw re;
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /* counting sort of event indices by owner: count per chunk, prefix sums, then scatter */
+    private void groupByOwner() {
+        int owners = trains + passengers;
+        int chunks = Math.max(1, Math.min(events, pool.getParallelism()));
+        int[][] counts = new int[chunks][owners];
+        parallel(chunks, c -> {
+            for(int i = chunkStart(c, chunks); i < chunkStart(c + 1, chunks); i++) {
+                if(!known(i)) {
+                    unsupported = true;
+                    return;
+                }
+                counts[c][owner(i)]++;
+            }
+        });
+        if(unsupported) return;
+        ownerStart = new int[owners + 1];
+        int total = 0;
+        for(int o = 0; o < owners; o++) {
+            ownerStart[o] = total;
+            for(int c = 0; c < chunks; c++) {
+                int n = counts[c][o];
+                counts[c][o] = total;
+                total += n;
+            }
+        }
+        ownerStart[owners] = total;
+        byOwner = new int[events];
+        arg1 = new int[events];
+        arg2 = new int[events];
+        parallel(chunks, c -> {
+            int[] next = counts[c];
+            for(int i = chunkStart(c, chunks); i < chunkStart(c + 1, chunks); i++) {
+                int k = next[owner(i)]++;
+                byOwner[k] = i;
+                int type = field(i, 0);
+                if(type == BinLog.MOVE) {
+                    arg1[k] = replica.logStation[field(i, 2)];
+                } else {
+                    int t = replica.logTrain[field(i, 2)];
+                    arg1[k] = type == BinLog.BOARD ? t : ~t;
+                }
+                arg2[k] = replica.logStation[field(i, 3)];
+            }
+        });
+    }
+
+    private int chunkStart(int c, int chunks) {
+        return (int) ((long) events * c / chunks);
+    }
+
+    /* the record's type is known and all its names are in the config */
+    private boolean known(int i) {
+        int type = field(i, 0);
+        int[] first = type == BinLog.MOVE ? replica.logTrain : replica.logPassenger;
+        int[] second = type == BinLog.MOVE ? replica.logStation : replica.logTrain;
+        return (type == BinLog.MOVE || type == BinLog.BOARD || type == BinLog.DEBOARD)
+                && mapped(first, field(i, 1)) && mapped(second, field(i, 2)) && mapped(replica.logStation, field(i, 3));
+    }
+
+    private static boolean mapped(int[] ids, int id) {
+        return id >= 0 && id < ids.length && ids[id] >= 0;
+    }
+
+    /* phase 1: MoveEvent's first two checks, per train */
+    private void checkTrains() {
+        validMoves = new int[trains];
+        posAfter = new int[ownerStart[trains]];
+        parallel(trains, t -> {
+            int[] line = replica.line[t];
+            int pos = replica.tIndex[t], dir = replica.tDir[t];
+            for(int k = ownerStart[t]; k < ownerStart[t + 1]; k++) {
+                int i = byOwner[k];
+                if(i > failedAt) return;
+                int s1 = arg1[k], s2 = arg2[k];
+                if(line[pos] != s1) {
+                    fail(i, "Train must currently be at " + replica.stations[s1]);
+                    return;
+                }
+                int next = BinVerify.nextIndex(line.length, pos, dir);
+                if(line[next] != s2) {
+                    fail(i, "Train must proceed to " + replica.stations[s2]);
+                    return;
+                }
+                dir = next < pos ? 1 : 0;
+                pos = next;
+                posAfter[k] = pos;
+                validMoves[t]++;
+            }
+        });
+    }
+
+    /* phase 2: MoveEvent's occupancy check, per station */
+    private void checkStations() {
+        /* (index, departure?, train) for each train arriving at or leaving each station */
+        int[] start = new int[stations + 1];
+        for(int t = 0; t < trains; t++) {
+            int[] line = replica.line[t];
+            for(int k = ownerStart[t]; k < ownerStart[t] + validMoves[t]; k++) {
+                start[line[posAfter[k]]]++;
+                start[from(t, k)]++;
+            }
+        }
+        for(int s = 0, total = 0; s <= stations; s++) {
+            int n = s < stations ? start[s] : 0;
+            start[s] = total;
+            total += n;
+        }
+        long[] visits = new long[start[stations]];
+        int[] fill = Arrays.copyOf(start, stations);
+        for(int t = 0; t < trains; t++) {
+            int[] line = replica.line[t];
+            for(int k = ownerStart[t]; k < ownerStart[t] + validMoves[t]; k++) {
+                long index = (long) byOwner[k] << 32;
+                visits[fill[line[posAfter[k]]]++] = index | t;
+                visits[fill[from(t, k)]++] = index | 1L << 31 | t;
+            }
+        }
+        parallel(stations, s -> {
+            Arrays.sort(visits, start[s], start[s + 1]);
+            int occupant = replica.staTrain[s];
+            for(int v = start[s]; v < start[s + 1]; v++) {
+                int i = (int) (visits[v] >>> 32);
+                if(i > failedAt) return;
+                boolean departure = (visits[v] & 1L << 31) != 0;
+                int t = (int) (visits[v] & 0x7FFFFFFF);
+                if(departure) {
+                    if(occupant == t) occupant = -1;
+                } else if(occupant >= 0) {
+                    fail(i, "Only one train can be at " + replica.stations[s]);
+                    return;
+                } else {
+                    occupant = t;
+                }
+            }
+        });
+    }
+
+    /* station train t leaves in its move at byOwner[k] */
+    private int from(int t, int k) {
+        return replica.line[t][k == ownerStart[t] ? replica.tIndex[t] : posAfter[k - 1]];
+    }
+
+    /*
+     *   the first of train t's moves at or after event i, searching forward from move k; a
+     *   passenger's queries only move forward, so galloping from the last answer is cheap
+     */
+    private int movesBefore(int t, int i, int k) {
+        int end = ownerStart[t] + validMoves[t], step = 1;
+        while(k + step <= end && byOwner[k + step - 1] < i) {
+            k += step;
+            step <<= 1;
+        }
+        int hi = Math.min(k + step - 1, end);
+        while(k < hi) {
+            int mid = (k + hi) >>> 1;
+            if(byOwner[mid] < i) k = mid + 1; else hi = mid;
+        }
+        return k;
+    }
+
+    /* where train t is once the moves before move k are done */
+    private int stationAt(int t, int k) {
+        return replica.line[t][k == ownerStart[t] ? replica.tIndex[t] : posAfter[k - 1]];
+    }
+
+    /* phase 3: BoardEvent and DeboardEvent, per passenger; returns the first passenger
+       (in config order) not at their destination, or -1 */
+    private int checkPassengers() {
+        boolean[] unfinished = new boolean[passengers];
+        parallel(passengers, p -> {
+            int[] journey = replica.journey[p];
+            int[] legLine = replica.legLine[p];
+            int at = replica.pIndex[p], riding = replica.pTrain[p];
+            int lastTrain = -1, lastMove = 0;
+            for(int k = ownerStart[trains + p]; k < ownerStart[trains + p + 1]; k++) {
+                int i = byOwner[k];
+                if(i > failedAt) return;
+                int t = arg1[k] >= 0 ? arg1[k] : ~arg1[k], s = arg2[k];
+                lastMove = movesBefore(t, i, t == lastTrain ? lastMove : ownerStart[t]);
+                lastTrain = t;
+                int station = stationAt(t, lastMove);
+                if(arg1[k] >= 0) {
+                    if(!(station == s && journey[at] == s)) {
+                        fail(i, "Passenger and train must currently be at the same station");
+                        return;
+                    }
+                    if(at >= legLine.length || legLine[at] != t) {
+                        fail(i, "Passenger and train must be going to the same station");
+                        return;
+                    }
+                    riding = t;
+                } else {
+                    if(riding != t) {
+                        fail(i, "Passenger " + replica.passengers[p] + " not on the train");
+                        return;
+                    }
+                    if(station != s) {
+                        fail(i, "Train must be at current station to deboard passengers");
+                        return;
+                    }
+                    if(journey[at + 1] != s) {
+                        fail(i, "Passenger shouldn't deboard at current station");
+                        return;
+                    }
+                    riding = -1;
+                    at++;
+                }
+            }
+            unfinished[p] = riding >= 0 || journey[at] != journey[journey.length - 1];
+        });
+        for(int p = 0; p < passengers; p++) {
+            if(unfinished[p]) return p;
+        }
+        return -1;
+    }
+}
@@ -1,22 +1,31 @@
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Passenger extends Entity {
 
-    private static final Map<String, Passenger> passengers = new HashMap<>();
+    private static final Registry<Passenger> passengers = new Registry<>(Passenger::new);
 
-    private Passenger(String name) {
-        super(name);
+    private Passenger(String name, int id) {
+        super(name, id);
     }
 
     public static Passenger make(String name) {
-        if(!passengers.containsKey(name)) {
-            passengers.put(name, new Passenger(name));
-        }
-        return passengers.get(name);
+        return passengers.make(name);
+    }
+
+    public static Passenger byId(int id) {
+        return passengers.get(id);
+    }
+
+    /* length for an array indexed by Passenger id */
+    public static int count() {
+        return passengers.size();
+    }
+
+    /* makes room for n more Passengers, see Registry.reserve */
+    public static void reserve(int n) {
+        passengers.reserve(n);
     }
 
     public static void clearCache() {
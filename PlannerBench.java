@@ -0,0 +1,61 @@
+import java.util.*;
+
+/*
+ *   Benchmark for RoutePlanner: builds a random network (seeded) and plans random journeys
+ *   between any two stations, first against a cold cache and then again warm.
+ *
+ *   usage: java PlannerBench [journeys] [lines] [stations per line] [station pool]
+ */
+public class PlannerBench {
+
+    public static void main(String[] args) {
+        int journeys = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int perLine = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int pool = args.length > 3 ? Integer.parseInt(args[3]) : 5_000;
+
+        Random rand = new Random(42);
+        MBTA mbta = new MBTA();
+        for(int l = 0; l < lines; l++) {
+            /* distinct stations drawn from the pool, so lines cross at shared stations */
+            Set<String> stations = new LinkedHashSet<>();
+            while(stations.size() < perLine) stations.add("S" + rand.nextInt(pool));
+            mbta.addLine("line" + l, new ArrayList<>(stations));
+        }
+        List<Station> used = new ArrayList<>();
+        for(List<Station> route : mbta.lines.values()) used.addAll(route);
+
+        long start = System.nanoTime();
+        RoutePlanner planner = mbta.getPlanner();
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+        Station[] from = new Station[journeys];
+        Station[] to = new Station[journeys];
+        for(int i = 0; i < journeys; i++) {
+            from[i] = used.get(rand.nextInt(used.size()));
+            to[i] = used.get(rand.nextInt(used.size()));
+        }
+        int unreachable = 0;
+        long legs = 0;
+        start = System.nanoTime();
+        for(int i = 0; i < journeys; i++) {
+            List<Station> route = planner.route(from[i], to[i]);
+            if(route == null) unreachable++;
+            else legs += route.size() - 1;
+        }
+        long coldMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        for(int i = 0; i < journeys; i++) {
+            planner.route(from[i], to[i]);
+        }
+        long warmMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("network: %d lines x %d stations, %d distinct stations%n",
+                lines, perLine, new HashSet<>(used).size());
+        System.out.printf("planner build:   %6d ms%n", buildMs);
+        System.out.printf("%d journeys cold: %6d ms (avg %.2f legs, %d unreachable)%n",
+                journeys, coldMs, (double) legs / Math.max(1, journeys - unreachable), unreachable);
+        System.out.printf("%d journeys warm: %6d ms%n", journeys, warmMs);
+        mbta.reset();
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ *   Interns the entities of one kind by name and gives each name a dense int id, so state
+ *   about entities can live in arrays indexed by id instead of hash maps.
+ *
+ *   make is safe to call from any thread. Lookups of an existing name don't lock; the first
+ *   make of a name assigns its id and creates the entity under the registry's lock.
+ *
+ *   clear drops the entities but not the ids: a name keeps its id for the life of the
+ *   process, so an entity made before a clear still indexes the same slot as the one made
+ *   for its name afterwards (the two are equal anyway, as equality is by name).
+ */
+public class Registry<E extends Entity> {
+
+    public interface Factory<E> {
+        E make(String name, int id);
+    }
+
+    private final Factory<E> factory;
+    // replaced (under this) only by reserve
+    private volatile Map<String, E> entities;
+    // every name ever made and its id; guarded by this
+    private Map<String, Integer> ids;
+    // entities by id, replaced when it grows; an entry is written before its entity is
+    // published through entities
+    private volatile Entity[] byId;
+
+    public Registry(Factory<E> factory) {
+        this.factory = factory;
+        entities = new ConcurrentHashMap<>();
+        ids = new HashMap<>();
+        byId = new Entity[16];
+    }
+
+    public E make(String name) {
+        E e = entities.get(name);
+        if(e != null) return e;
+        synchronized(this) {
+            e = entities.get(name);
+            if(e == null) {
+                int id = ids.computeIfAbsent(name, n -> ids.size());
+                e = factory.make(name, id);
+                if(id >= byId.length) {
+                    byId = Arrays.copyOf(byId, Math.max(byId.length * 2, id + 1));
+                }
+                byId[id] = e;
+                entities.put(name, e);
+            }
+            return e;
+        }
+    }
+
+    /* makes room for n more names, so that making them doesn't rehash or copy on the way */
+    public synchronized void reserve(int n) {
+        if(n <= 0) return;
+        int size = ids.size() + n;
+        if(size > byId.length) byId = Arrays.copyOf(byId, size);
+        Map<String, Integer> moreIds = HashMap.newHashMap(size);
+        moreIds.putAll(ids);
+        ids = moreIds;
+        Map<String, E> moreEntities = new ConcurrentHashMap<>(entities.size() + n);
+        moreEntities.putAll(entities);
+        entities = moreEntities;
+    }
+
+    /* the entity with this id, or null if it was cleared and not made again */
+    @SuppressWarnings("unchecked")
+    public E get(int id) {
+        Entity[] curr = byId;
+        return id < curr.length ? (E) curr[id] : null;
+    }
+
+    /* one more than the highest id handed out: the length for an id-indexed array */
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized void clear() {
+        entities.clear();
+        Arrays.fill(byId, null);
+    }
+}
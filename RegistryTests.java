@@ -0,0 +1,60 @@
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class RegistryTests {
+
+    /* racing makes of the same names agree on one entity and one id per name */
+    @Test(timeout = 10000)
+    public void testConcurrentMake() throws InterruptedException {
+        int threads = 8, names = 5_000;
+        Passenger[][] made = new Passenger[threads][names];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> makers = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            Passenger[] mine = made[i];
+            makers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                for(int j = 0; j < names; j++) {
+                    mine[j] = Passenger.make("Racer" + j);
+                }
+            }));
+        }
+        makers.forEach(Thread::start);
+        start.countDown();
+        for(Thread m : makers) m.join();
+
+        Set<Integer> ids = new HashSet<>();
+        for(int j = 0; j < names; j++) {
+            for(int i = 1; i < threads; i++) {
+                assert(made[i][j] == made[0][j]);
+            }
+            assert(Passenger.byId(made[0][j].id()) == made[0][j]);
+            ids.add(made[0][j].id());
+        }
+        /* no two names share an id, and every id fits an array of length count() */
+        assert(ids.size() == names);
+        for(int id : ids) assert(id < Passenger.count());
+    }
+
+    /* a name keeps its id across clearCache, and the old and new entities are equal */
+    @Test
+    public void testIdsSurviveClear() {
+        Train before = Train.make("silver");
+        Train.clearCache();
+        assert(Train.byId(before.id()) == null);
+        Train after = Train.make("silver");
+        assert(after != before);
+        assert(after.id() == before.id());
+        assert(after.equals(before) && after.hashCode() == before.hashCode());
+        assert(Train.byId(after.id()) == after);
+    }
+}
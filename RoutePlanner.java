@@ -0,0 +1,119 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ *   Plans multi-leg journeys for passengers whose consecutive stops share no single line.
+ *
+ *   The transfer graph has one node per line and an edge between two lines that share a
+ *   station. Shortest paths (fewest legs) between lines are computed by a breadth-first search
+ *   per source line, on demand, and cached, so the all-pairs table only fills in for lines
+ *   that are actually travelled from. A route from a to b is the cheapest path from any line
+ *   serving a to any line serving b; it lists the stations to stop at, with one transfer
+ *   station between each pair of legs. Routes are also cached per (origin, destination) pair.
+ *
+ *   A planner is a snapshot of the lines it was built from, so MBTA rebuilds it after addLine.
+ */
+public class RoutePlanner {
+
+    private record Leg(Station from, Station to) {}
+
+    /* breadth-first search result from one source line */
+    private record Row(int[] dist, int[] parent) {}
+
+    private final MBTA mbta;
+    private final Train[] lines;
+    private final Map<Train, Integer> lineIds;
+    // for each line, the lines it shares a station with
+    private final int[][] adjacent;
+    // for each line, the first station along it shared with each adjacent line
+    private final List<Map<Integer, Station>> transfers;
+    // search results per source line, filled in lazily
+    private final Row[] rows;
+    // routes already planned; an empty list marks an unreachable pair
+    private final Map<Leg, List<Station>> cache;
+
+    public RoutePlanner(MBTA mbta) {
+        this.mbta = mbta;
+        lines = mbta.lines.keySet().toArray(new Train[0]);
+        lineIds = new HashMap<>();
+        for(int i = 0; i < lines.length; i++) lineIds.put(lines[i], i);
+        adjacent = new int[lines.length][];
+        transfers = new ArrayList<>();
+        for(int i = 0; i < lines.length; i++) {
+            Map<Integer, Station> shared = new LinkedHashMap<>();
+            for(Station s : mbta.lines.get(lines[i])) {
+                for(Train u : mbta.getLinesServing(s)) {
+                    int j = lineIds.get(u);
+                    if(j != i) shared.putIfAbsent(j, s);
+                }
+            }
+            transfers.add(shared);
+            adjacent[i] = shared.keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+        rows = new Row[lines.length];
+        cache = new ConcurrentHashMap<>();
+    }
+
+    /* stations to stop at travelling from a to b, both included, or null if b is unreachable */
+    public List<Station> route(Station a, Station b) {
+        List<Station> route = cache.computeIfAbsent(new Leg(a, b), leg -> plan(a, b));
+        return route.isEmpty() ? null : route;
+    }
+
+    private List<Station> plan(Station a, Station b) {
+        int bestFrom = -1, bestTo = -1, best = Integer.MAX_VALUE;
+        for(Train from : mbta.getLinesServing(a)) {
+            Row row = row(lineIds.get(from));
+            for(Train to : mbta.getLinesServing(b)) {
+                int d = row.dist()[lineIds.get(to)];
+                if(d >= 0 && d < best) {
+                    best = d;
+                    bestFrom = lineIds.get(from);
+                    bestTo = lineIds.get(to);
+                }
+            }
+        }
+        if(best == Integer.MAX_VALUE) return List.of();
+        /* walk the search tree back from the last line, collecting transfer stations */
+        int[] parent = row(bestFrom).parent();
+        LinkedList<Station> stops = new LinkedList<>();
+        stops.addFirst(b);
+        for(int t = bestTo; t != bestFrom; t = parent[t]) {
+            stops.addFirst(transfers.get(parent[t]).get(t));
+        }
+        stops.addFirst(a);
+        return List.copyOf(stops);
+    }
+
+    /* racing threads may both compute a row; either result is the same */
+    private Row row(int source) {
+        Row row = rows[source];
+        if(row == null) {
+            row = search(source);
+            rows[source] = row;
+        }
+        return row;
+    }
+
+    private Row search(int source) {
+        int[] dist = new int[lines.length];
+        int[] parent = new int[lines.length];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[lines.length];
+        int head = 0, tail = 0;
+        dist[source] = 0;
+        parent[source] = source;
+        queue[tail++] = source;
+        while(head < tail) {
+            int t = queue[head++];
+            for(int u : adjacent[t]) {
+                if(dist[u] < 0) {
+                    dist[u] = dist[t] + 1;
+                    parent[u] = t;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        return new Row(dist, parent);
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ *   Scaling benchmark for Sim.run_sim: compares wall time and peak RSS of every
+ *   Sim.Mode (platform threads, virtual threads, discrete-event) for 1k, 10k and
+ *   100k passengers, and the time Verify takes over the resulting log. The network
+ *   and journeys come from NetGen (fixed seed), loaded through loadConfig.
+ *
+ *   Every (mode, size) pair runs in a fresh JVM so that peak RSS (VmHWM) is not
+ *   polluted by earlier runs. A run that dies (e.g. on native thread limits) is
+ *   reported as failed rather than aborting the whole benchmark.
+ *
+ *   usage: java ScaleBench [passenger counts...]
+ */
+public class ScaleBench {
+
+    private static final int LINES = 8;
+    private static final int STATIONS_PER_LINE = 10;
+    private static final double INTERCHANGE = 0.2;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length == 3 && args[0].equals("--child")) {
+            runChild(Sim.Mode.valueOf(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        List<Integer> sizes = new ArrayList<>();
+        for(String a : args) sizes.add(Integer.parseInt(a));
+        if(sizes.isEmpty()) sizes = List.of(1_000, 10_000, 100_000);
+
+        System.out.printf("%-10s %-9s %12s %14s %12s%n", "passengers", "mode", "wall (ms)", "peak RSS (MB)", "verify (ms)");
+        for(int n : sizes) {
+            for(Sim.Mode mode : Sim.Mode.values()) {
+                String result = fork(mode, n);
+                System.out.printf("%-10d %-9s %s%n", n, mode, result);
+            }
+        }
+    }
+
+    /* runs one configuration in a child JVM and returns its formatted result */
+    private static String fork(Sim.Mode mode, int passengers) throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "ScaleBench", "--child", mode.name(), Integer.toString(passengers));
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        File result = File.createTempFile("scalebench", ".txt");
+        pb.redirectError(result);
+        int exit = pb.start().waitFor();
+        List<String> lines = Files.readAllLines(result.toPath());
+        result.delete();
+        String last = lines.isEmpty() ? "" : lines.getLast();
+        if(exit != 0 || !last.startsWith("RESULT")) {
+            return String.format("%12s %14s %12s", "failed", "-", "-");
+        }
+        String[] parts = last.split(" ");
+        return String.format("%12s %14.1f %12s", parts[1], Long.parseLong(parts[2]) / 1024.0, parts[3]);
+    }
+
+    private static void runChild(Sim.Mode mode, int passengers) throws IOException {
+        /* NetGen's interchanges are never adjacent, so no topology it makes can deadlock */
+        File config = File.createTempFile("scalebench", ".json");
+        try(Writer w = new BufferedWriter(new FileWriter(config))) {
+            new NetGen(1, LINES, STATIONS_PER_LINE, INTERCHANGE).write(w, passengers, 2);
+        }
+        MBTA mbta = new MBTA();
+        mbta.loadConfig(config.getPath());
+        Log log = new Log();
+        long start = System.nanoTime();
+        Sim.run_sim(mbta, log, mode);
+        log.flush();
+        long wallMs = (System.nanoTime() - start) / 1_000_000;
+        long peak = peakRssKb();
+        /* verification replays the log against the configuration as loaded */
+        MBTA fresh = new MBTA();
+        fresh.loadConfig(config.getPath());
+        config.delete();
+        start = System.nanoTime();
+        Verify.verify(fresh, log);
+        long verifyMs = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("RESULT " + wallMs + " " + peak + " " + verifyMs);
+    }
+
+    /* peak resident set size of this process in kB, or -1 if unavailable */
+    private static long peakRssKb() throws IOException {
+        File status = new File("/proc/self/status");
+        if(!status.exists()) return -1;
+        for(String line : Files.readAllLines(status.toPath())) {
+            if(line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.concurrent.locks.Condition;
+
+/* wall-clock dwell of DWELL_MILLIS scaled by a constant factor */
+public class ScaledClock implements SimClock {
+
+    public static final long DWELL_MILLIS = 10;
+
+    private final long dwellNanos;
+
+    public ScaledClock(double factor) {
+        /* a zero dwell would never release the station lock to passengers */
+        if(factor <= 0) {
+            throw new IllegalArgumentException("Clock scale must be positive: " + factor);
+        }
+        dwellNanos = (long) (DWELL_MILLIS * 1_000_000 * factor);
+    }
+
+    @Override
+    public void dwell(MBTA mbta, Train t, Station s) throws InterruptedException {
+        Condition departure = mbta.getStationSync(s).departure;
+        long nanos = dwellNanos;
+        /* passengers signal departure as they act, so keep waiting out the remainder */
+        while(nanos > 0) {
+            nanos = departure.awaitNanos(nanos);
+        }
+    }
+}
@@ -1,23 +1,83 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 public class Sim {
 
+    /*
+     *   how TransitThreads are executed
+     *   PLATFORM - one OS thread per train/passenger (the original behaviour)
+     *   VIRTUAL - one virtual thread per train/passenger, scheduled on a small carrier pool
+     *   DISCRETE - no TransitThreads at all, the single-threaded DiscreteSim engine
+     */
+    public enum Mode { PLATFORM, VIRTUAL, DISCRETE }
+
     private final static List<Thread> tThreads = new ArrayList<>();
     private final static List<Thread> pThreads = new ArrayList<>();
 
     public static void run_sim(MBTA mbta, Log log) {
+        run_sim(mbta, log, Mode.PLATFORM);
+    }
+
+    public static void run_sim(MBTA mbta, Log log, Mode mode) {
+        run_sim(mbta, log, mode, SimClock.real());
+    }
+
+    /* clock sets how long trains dwell at stations; DISCRETE keeps its own logical time */
+    public static void run_sim(MBTA mbta, Log log, Mode mode, SimClock clock) {
+        run_sim(mbta, log, mode, clock, Watchdog.STALL_MILLIS);
+    }
+
+    /*
+     *   runs under a Watchdog, which aborts the run if trains deadlock or no passenger boards or
+     *   gets off for stallMillis; the run then ends with a RuntimeException saying why
+     */
+    public static void run_sim(MBTA mbta, Log log, Mode mode, SimClock clock, long stallMillis) {
+        run_sim(mbta, log, mode, clock, stallMillis, DiscreteSim.Checkpoints.NONE);
+    }
+
+    /* only DISCRETE runs take checkpoints; the threaded ones have no point at which all is still */
+    public static void run_sim(MBTA mbta, Log log, Mode mode, SimClock clock, long stallMillis,
+                               DiscreteSim.Checkpoints checkpoints) {
+        if(mode != Mode.DISCRETE && checkpoints.every() > 0) {
+            throw new RuntimeException("Checkpoints are only taken by " + Mode.DISCRETE + " runs");
+        }
+        /* counts the run's events into mbta.metrics() while it runs */
+        SimMetrics metrics = mbta.metrics();
+        log.addSink(metrics);
+        metrics.start();
+        try {
+            if(mode == Mode.DISCRETE) {
+                DiscreteSim.run(mbta, log, checkpoints);
+            } else {
+                runThreads(mbta, log, mode, clock, stallMillis);
+            }
+        } finally {
+            metrics.stop();
+            log.flush();
+            log.removeSink(metrics);
+        }
+    }
+
+    private static void runThreads(MBTA mbta, Log log, Mode mode, SimClock clock, long stallMillis) {
         for(Train t : mbta.lines.keySet()) {
-            TransitTrain newTrain = new TransitTrain(t, mbta, log, mbta.getTCurrStation(t));
-            tThreads.add(new Thread(newTrain));
+            TransitTrain newTrain = new TransitTrain(t, mbta, log, mbta.getTCurrStation(t), clock);
+            tThreads.add(newThread(mode, newTrain));
             mbta.addToTrainMapping(t, newTrain);
         }
         for(Passenger p : mbta.journeys.keySet()) {
             TransitPassenger newPassenger = new TransitPassenger(p, mbta, log, mbta.getPCurrStation(p));
-            pThreads.add(new Thread(newPassenger));
+            pThreads.add(newThread(mode, newPassenger));
             mbta.addToPassengerMapping(p, newPassenger);
         }
+        Watchdog watchdog = new Watchdog(mbta, stallMillis);
+        log.addSink(watchdog);
+        watchdog.start(() -> {
+            tThreads.forEach(Thread::interrupt);
+            pThreads.forEach(Thread::interrupt);
+        });
         tThreads.forEach(Thread::start);
         pThreads.forEach(Thread::start);
         try {
@@ -29,29 +89,120 @@ public class Sim {
         }
         // System.out.println("Sim is done, interrupting train threads");
         tThreads.forEach(Thread::interrupt);
+        /* trains may still be mid-move; wait so the log is final once we return */
+        try {
+            for(Thread t : tThreads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            System.err.println("Sim interrupted: " + e.getMessage());
+        }
+        watchdog.stop();
+        log.removeSink(watchdog);
+        if(watchdog.failure() != null) {
+            throw new RuntimeException(watchdog.failure());
+        }
+    }
+
+    /* creates an unstarted thread for the given transit entity */
+    private static Thread newThread(Mode mode, TransitThread r) {
+        if(mode == Mode.VIRTUAL) {
+            return Thread.ofVirtual().unstarted(r);
+        }
+        return new Thread(r);
     }
 
     public static void main(String[] args) throws Exception {
-        if (args.length != 1) {
-            System.out.println("usage: ./sim <config file>");
+        Mode mode = Mode.PLATFORM;
+        SimClock clock = SimClock.real();
+        boolean echo = true;
+        boolean binary = false;
+        boolean arrayState = false;
+        long checkpointEvery = 0;
+        Path checkpointDir = null;
+        String resume = null;
+        String config = null;
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--clock") && i + 1 < args.length) {
+                clock = parseClock(args[++i]);
+            } else if(args[i].equals("--quiet")) {
+                echo = false;
+            } else if(args[i].equals("--binary")) {
+                binary = true;
+            } else if(args[i].equals("--array-state")) {
+                arrayState = true;
+            } else if(args[i].equals("--virtual")) {
+                mode = Mode.VIRTUAL;
+            } else if(args[i].equals("--discrete")) {
+                mode = Mode.DISCRETE;
+            } else if(args[i].equals("--checkpoint") && i + 1 < args.length) {
+                checkpointEvery = Long.parseLong(args[++i]);
+            } else if(args[i].equals("--checkpoint-dir") && i + 1 < args.length) {
+                checkpointDir = Path.of(args[++i]);
+            } else if(args[i].equals("--resume") && i + 1 < args.length) {
+                resume = args[++i];
+            } else if(config == null) {
+                config = args[i];
+            } else {
+                config = null;
+                break;
+            }
+        }
+        if(resume != null && mode != Mode.DISCRETE) {
+            System.out.println("--resume needs --discrete: threads start with every passenger at a station");
+            System.exit(1);
+        }
+        if (config == null) {
+            System.out.println("usage: ./sim [--virtual | --discrete] [--clock real|logical|<scale>] [--quiet] [--binary] [--array-state]");
+            System.out.println("             [--checkpoint <events> [--checkpoint-dir <dir>]] [--resume <snapshot>] <config file>");
+            System.out.println("       --checkpoint logs a state digest and writes snapshot.bin every that many events (with --discrete),");
+            System.out.println("       keeping every snapshot in --checkpoint-dir for ./verify --windows;");
+            System.out.println("       --resume starts from a snapshot, logging only the events after it");
             System.exit(1);
         }
 
-        MBTA mbta = new MBTA();
-        mbta.loadConfig(args[0]);
-
-        Log log = new Log();
+        MBTA mbta = new MBTA(arrayState ? SimState.arrays() : SimState.maps());
+        mbta.loadConfig(config);
+        System.err.printf("Loaded %s in %d ms%n", config, mbta.metrics().loadNanos / 1_000_000);
+        Snapshot from = resume == null ? null : Snapshot.read(Path.of(resume));
+        if(from != null) mbta.restore(from);
 
-        run_sim(mbta, log);
+        /* events go to log.json (or log.bin) as the simulation produces them, and nowhere else */
+        Log log = new Log(echo, false);
+        Path file = Path.of(binary ? "log.bin" : "log.json");
+        if(binary) {
+            log.addSink(BinLog.writer(file, mbta));
+        } else {
+            log.addSink(LogJson.writer(Files.newBufferedWriter(file)));
+        }
 
-        String s = new LogJson(log).toJson();
-        PrintWriter out = new PrintWriter("log.json");
-        out.print(s);
-        out.close();
+        DiscreteSim.Checkpoints checkpoints = new DiscreteSim.Checkpoints(from == null ? 0 : from.events,
+                checkpointEvery, Path.of("snapshot.bin"), checkpointDir);
+        if(checkpointDir != null) Files.createDirectories(checkpointDir);
+        run_sim(mbta, log, mode, clock, Watchdog.STALL_MILLIS, checkpoints);
+        log.close();
+        try(Writer out = new BufferedWriter(new FileWriter("metrics.json"))) {
+            mbta.metrics().writeJson(out);
+        }
 
         mbta.reset();
-        mbta.loadConfig(args[0]);
-        Verify.verify(mbta, log);
+        mbta.loadConfig(config);
+        try(EventReader r = binary ? BinLog.reader(file) : LogJson.reader(Files.newBufferedReader(file))) {
+            if(from != null) {
+                Verify.verify(mbta, from, r);
+            } else {
+                Verify.verify(mbta, r);
+            }
+        }
+    }
+
+    /* "real", "logical", or a scale factor applied to the real dwell */
+    private static SimClock parseClock(String arg) {
+        return switch(arg) {
+            case "real" -> SimClock.real();
+            case "logical" -> SimClock.logical();
+            default -> SimClock.scaled(Double.parseDouble(arg));
+        };
     }
 
     public static void clearThreads() {
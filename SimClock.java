@@ -0,0 +1,27 @@
+/*
+ *   Decides how long a train dwells at a station before it tries to leave.
+ *
+ *   dwell is called by the train while it holds the lock of the station it is at, right after
+ *   passengers there have been signalled. Implementations wait on the station's departure
+ *   condition (StationSync.departure) instead of sleeping, so passengers can take the lock and
+ *   board/deboard in the meantime.
+ */
+public interface SimClock {
+
+    public void dwell(MBTA mbta, Train t, Station s) throws InterruptedException;
+
+    // the original behaviour: a fixed 10ms wall-clock dwell
+    public static SimClock real() {
+        return new ScaledClock(1.0);
+    }
+
+    // the real dwell multiplied by factor, e.g. 0.1 for a 1ms dwell
+    public static SimClock scaled(double factor) {
+        return new ScaledClock(factor);
+    }
+
+    // departs as soon as every passenger at the station has acted
+    public static SimClock logical() {
+        return new LogicalClock();
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.*;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+public class SimClockTests {
+
+    private MBTA mbta;
+    private Log log;
+
+    @Before
+    public void setUp() {
+        Sim.clearThreads();
+        mbta = new MBTA();
+        log = new Log();
+    }
+
+    @After
+    public void tearDown() {
+        Sim.clearThreads();
+        mbta.reset();
+    }
+
+    private void loadTransfers() {
+        mbta.addLine("red", List.of("Davis", "Harvard", "Kendall", "Park", "Downtown Crossing"));
+        mbta.addLine("green", List.of("Tufts", "North Station", "Government Center", "Park", "Copley"));
+        mbta.addJourney("Alice", List.of("Davis", "Park", "Copley"));
+        mbta.addJourney("Bob", List.of("Tufts", "Park", "Downtown Crossing"));
+        mbta.addJourney("Carol", List.of("Kendall", "Davis"));
+    }
+
+    private void runAndVerify(SimClock clock) {
+        runAndVerify(Sim.Mode.PLATFORM, clock);
+    }
+
+    private void runAndVerify(Sim.Mode mode, SimClock clock) {
+        loadTransfers();
+        Sim.run_sim(mbta, log, mode, clock);
+        mbta.reset();
+        loadTransfers();
+        Verify.verify(mbta, log);
+    }
+
+    @Test(timeout = 5000)
+    public void testLogicalClock() {
+        runAndVerify(SimClock.logical());
+    }
+
+    @Test(timeout = 5000)
+    public void testScaledClock() {
+        runAndVerify(SimClock.scaled(0.1));
+    }
+
+    /* virtual threads log the same events, under the real dwell as well as the logical one */
+    @Test(timeout = 5000)
+    public void testVirtualRealClock() {
+        runAndVerify(Sim.Mode.VIRTUAL, SimClock.real());
+    }
+
+    /* a train that never parks must still let passengers onto its carrier */
+    @Test(timeout = 5000)
+    public void testVirtualLogicalClock() {
+        runAndVerify(Sim.Mode.VIRTUAL, SimClock.logical());
+    }
+
+    /* on a network with interchanges, trains that nobody needs must park rather than keep the carrier */
+    @Test(timeout = 30000)
+    public void testVirtualLogicalNetGen() throws IOException {
+        StringWriter config = new StringWriter();
+        new NetGen(1, 8, 10, 0.2).write(config, 200, 3);
+        mbta.loadConfig(new JsonReader(new StringReader(config.toString())));
+        Log quiet = new Log(false);
+        Sim.run_sim(mbta, quiet, Sim.Mode.VIRTUAL, SimClock.logical());
+        quiet.close();
+        mbta.reset();
+        mbta.loadConfig(new JsonReader(new StringReader(config.toString())));
+        Verify.verify(mbta, quiet);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroScaleRejected() {
+        SimClock.scaled(0);
+    }
+}
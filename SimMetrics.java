@@ -0,0 +1,121 @@
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ *   What a run did, recorded as it runs. Every MBTA has one (MBTA.metrics), cleared with it.
+ *
+ *   Event counts come from the log: run_sim attaches this as a LogSink for the run, so they
+ *   are counted on the log's writer thread and cover DISCRETE runs too. The threaded runs also
+ *   time, in nanoseconds, with counters striped (LongAdder) and histograms lock-free:
+ *   passengerWait - from a passenger starting to wait at a station to boarding there
+ *   dwell - a train's stay at a station, as decided by its SimClock
+ *   trainLockWait, passengerLockWait - acquiring a station's lock
+ *   stationWait - a train waiting for the next station to be free (Occupancy.claim)
+ *   and counts passenger wakeups, spurious being those after which the passenger still
+ *   couldn't board or get off.
+ *
+ *   loadNanos is how long the last loadConfig took.
+ *
+ *   writeJson dumps a summary; Sim writes it to metrics.json next to the log.
+ */
+public class SimMetrics implements LogSink {
+
+    public final LongAdder moves = new LongAdder();
+    public final LongAdder boards = new LongAdder();
+    public final LongAdder deboards = new LongAdder();
+    public final LongAdder wakeups = new LongAdder();
+    public final LongAdder spurious = new LongAdder();
+
+    public final Histogram passengerWait = new Histogram();
+    public final Histogram dwell = new Histogram();
+    public final Histogram trainLockWait = new Histogram();
+    public final Histogram passengerLockWait = new Histogram();
+    public final Histogram stationWait = new Histogram();
+
+    public volatile long loadNanos;
+
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    public void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    /* wall time of the run so far, or of the whole run once stopped */
+    public long wallNanos() {
+        long end = endNanos;
+        return startNanos == 0 ? 0 : (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+
+    public double movesPerSecond() {
+        long nanos = wallNanos();
+        return nanos == 0 ? 0 : moves.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public void write(List<Event> batch) {
+        for(Event e : batch) {
+            if(e instanceof MoveEvent) {
+                moves.increment();
+            } else if(e instanceof BoardEvent) {
+                boards.increment();
+            } else if(e instanceof DeboardEvent) {
+                deboards.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        for(LongAdder a : List.of(moves, boards, deboards, wakeups, spurious)) a.reset();
+        for(Histogram h : histograms()) h.clear();
+        loadNanos = 0;
+        startNanos = 0;
+        endNanos = 0;
+    }
+
+    private List<Histogram> histograms() {
+        return List.of(passengerWait, dwell, trainLockWait, passengerLockWait, stationWait);
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter jw = new JsonWriter(out);
+        jw.setIndent("  ");
+        jw.beginObject();
+        jw.name("loadMillis").value(loadNanos / 1_000_000);
+        jw.name("wallMillis").value(wallNanos() / 1_000_000);
+        jw.name("events").beginObject();
+        jw.name("moves").value(moves.sum());
+        jw.name("boards").value(boards.sum());
+        jw.name("deboards").value(deboards.sum());
+        jw.endObject();
+        jw.name("movesPerSecond").value(Math.round(movesPerSecond() * 10) / 10.0);
+        jw.name("wakeups").value(wakeups.sum());
+        jw.name("spuriousWakeups").value(spurious.sum());
+        jw.name("nanos").beginObject();
+        String[] names = {"passengerWait", "dwell", "trainLockWait", "passengerLockWait", "stationWait"};
+        List<Histogram> histograms = histograms();
+        for(int i = 0; i < names.length; i++) {
+            Histogram h = histograms.get(i);
+            jw.name(names[i]).beginObject();
+            jw.name("count").value(h.count());
+            jw.name("mean").value(Math.round(h.mean()));
+            jw.name("p50").value(h.percentile(0.5));
+            jw.name("p90").value(h.percentile(0.9));
+            jw.name("p99").value(h.percentile(0.99));
+            jw.name("max").value(h.max());
+            jw.endObject();
+        }
+        jw.endObject();
+        jw.endObject();
+        jw.flush();
+    }
+}
@@ -0,0 +1,64 @@
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+public class SimMetricsTests {
+
+    /* percentiles land within a bucket's width (1/32) of the exact value */
+    @Test
+    public void testHistogramPrecision() {
+        Histogram h = new Histogram();
+        for(long v = 1; v <= 100_000; v++) h.record(v * 1_000);
+        assert(h.count() == 100_000);
+        assert(h.max() == 100_000_000);
+        for(double q : new double[] {0.5, 0.9, 0.99, 1.0}) {
+            double exact = q * 100_000_000;
+            assert(Math.abs(h.percentile(q) - exact) <= exact / 32);
+        }
+        assert(Math.abs(h.mean() - 50_000_500) < 1);
+        h.clear();
+        assert(h.count() == 0 && h.percentile(0.5) == 0);
+    }
+
+    /* every bucket starts right after the previous one ends */
+    @Test
+    public void testHistogramBuckets() {
+        for(long v : new long[] {0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int i = Histogram.index(v);
+            assert(Histogram.lowest(i) <= v);
+            assert(v == Long.MAX_VALUE || v < Histogram.lowest(i + 1));
+        }
+    }
+
+    /* a run's counts match its log, and the summary is written */
+    @Test(timeout = 5000)
+    public void testRunCounts() {
+        Sim.clearThreads();
+        MBTA mbta = new MBTA();
+        mbta.addLine("red", List.of("Davis", "Harvard", "Kendall", "Park", "Downtown Crossing"));
+        mbta.addLine("green", List.of("Tufts", "North Station", "Government Center", "Park", "Copley"));
+        mbta.addJourney("Alice", List.of("Davis", "Park", "Copley"));
+        mbta.addJourney("Bob", List.of("Tufts", "Park", "Downtown Crossing"));
+        Log log = new Log(false);
+        Sim.run_sim(mbta, log, Sim.Mode.PLATFORM, SimClock.logical());
+        SimMetrics m = mbta.metrics();
+        long moves = log.events().stream().filter(e -> e instanceof MoveEvent).count();
+        assert(m.moves.sum() == moves);
+        assert(m.boards.sum() == 4 && m.deboards.sum() == 4);
+        assert(m.passengerWait.count() == 4 && m.dwell.count() >= moves);
+        assert(m.wallNanos() > 0 && m.movesPerSecond() > 0);
+
+        StringWriter out = new StringWriter();
+        try {
+            m.writeJson(out);
+        } catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        assert(out.toString().contains("\"boards\": 4"));
+        Sim.clearThreads();
+        mbta.reset();
+        assert(m.moves.sum() == 0);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *   Per-entity counters of the simulation that MBTA reads and writes on every move and
+ *   deboard: each train's position on its line and direction, and each passenger's position
+ *   in their journey.
+ *
+ *   Writes to different entities may come from different threads; MBTA's callers already
+ *   order the writes to any one entity. Entities start at 0 until first set.
+ */
+public interface SimState {
+
+    public int trainIndex(Train t);
+
+    public void setTrainIndex(Train t, int index);
+
+    // 1 = in reverse
+    public int trainDirection(Train t);
+
+    public void setTrainDirection(Train t, int direction);
+
+    public int passengerIndex(Passenger p);
+
+    public void setPassengerIndex(Passenger p, int index);
+
+    public void clear();
+
+    // makes room for this many more trains and passengers before they are set
+    public default void reserve(int trains, int passengers) {
+    }
+
+    // the original store: a ConcurrentHashMap of boxed Integers per field
+    public static SimState maps() {
+        return new MapSimState();
+    }
+
+    // arrays indexed by entity id, see ArraySimState
+    public static SimState arrays() {
+        return new ArraySimState();
+    }
+}
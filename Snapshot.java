@@ -0,0 +1,158 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ *   Where every train and passenger is after the first events events of a run, taken with
+ *   MBTA.snapshot and put back with MBTA.restore into an MBTA loaded from the same config.
+ *
+ *   Only what the config and these can't give is kept: each train's position on its line
+ *   and direction, and each passenger's position in their journey and the train they are on,
+ *   if any. The rest follows: a train is at station index of its line, a passenger at stop
+ *   index of their journey, and a passenger on no train is among that station's passengers.
+ *   Entities are named, as their ids (see Registry) differ from one process to the next.
+ *
+ *   A file is MAGIC, VERSION, events, then the trains (count, then name, index, direction for
+ *   each) and the passengers (count, then name, index, and the position of their train in
+ *   the train table or -1 for each); names are length-prefixed UTF-8, as in BinLog.
+ */
+public class Snapshot {
+
+    public static final int MAGIC = 0x4D42534E; // "MBSN"
+    public static final int VERSION = 1;
+
+    public record TrainState(Train t, int index, int direction) {}
+
+    public record PassengerState(Passenger p, int index, Train on) {}
+
+    public final long events;
+    public final List<TrainState> trains;
+    public final List<PassengerState> passengers;
+
+    public Snapshot(long events, List<TrainState> trains, List<PassengerState> passengers) {
+        this.events = events;
+        this.trains = trains;
+        this.passengers = passengers;
+    }
+
+    /* where a directory of checkpoints keeps the one taken after events events */
+    public static Path inDir(Path dir, long events) {
+        return dir.resolve(String.format("%012d.snap", events));
+    }
+
+    /* the DigestEvent of the state this holds, the same as MBTA.digest once it is restored */
+    public long digest() {
+        long digest = 0;
+        for(TrainState ts : trains) digest += DigestEvent.train(ts.t(), ts.index(), ts.direction());
+        for(PassengerState ps : passengers) digest += DigestEvent.passenger(ps.p(), ps.index(), ps.on());
+        return digest;
+    }
+
+    /* writes to a file next to file and renames it over file, so a crash never leaves half a snapshot */
+    public void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            write(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(events);
+        Map<Train, Integer> order = new HashMap<>();
+        out.writeInt(trains.size());
+        for(TrainState ts : trains) {
+            writeName(out, ts.t());
+            out.writeInt(ts.index());
+            out.writeByte(ts.direction());
+            order.put(ts.t(), order.size());
+        }
+        out.writeInt(passengers.size());
+        for(PassengerState ps : passengers) {
+            writeName(out, ps.p());
+            out.writeInt(ps.index());
+            out.writeInt(ps.on() == null ? -1 : order.get(ps.on()));
+        }
+    }
+
+    public static Snapshot read(Path file) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            return read(in, Files.size(file));
+        }
+    }
+
+    /*
+     *   reads a snapshot of size bytes; counts and name lengths are checked against the bytes
+     *   left before anything is allocated, so a corrupt file fails as truncated
+     */
+    public static Snapshot read(DataInputStream in, long size) throws IOException {
+        long[] left = { size };
+        try {
+            if(in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a snapshot");
+            }
+            int version = in.readInt();
+            if(version != VERSION) {
+                throw new RuntimeException("Unsupported snapshot version " + version);
+            }
+            long events = in.readLong();
+            left[0] -= 16;
+            /* a train takes at least a name length, index and direction */
+            int count = readCount(in, left, 4 + 4 + 1, "trains");
+            List<TrainState> trains = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                trains.add(new TrainState(Train.make(readName(in, left)), in.readInt(), in.readByte()));
+                left[0] -= 4 + 1;
+            }
+            /* a passenger takes at least a name length, index and train */
+            count = readCount(in, left, 4 + 4 + 4, "passengers");
+            List<PassengerState> passengers = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                Passenger p = Passenger.make(readName(in, left));
+                int index = in.readInt();
+                int on = in.readInt();
+                left[0] -= 4 + 4;
+                if(on < -1 || on >= trains.size()) {
+                    throw new RuntimeException("Passenger " + p + " is on train " + on + " of " + trains.size());
+                }
+                passengers.add(new PassengerState(p, index, on == -1 ? null : trains.get(on).t()));
+            }
+            return new Snapshot(events, trains, passengers);
+        } catch(EOFException e) {
+            throw new RuntimeException("Truncated snapshot");
+        }
+    }
+
+    private static int readCount(DataInputStream in, long[] left, int minBytes, String what) throws IOException {
+        int count = in.readInt();
+        left[0] -= 4;
+        if(count < 0 || count > left[0] / minBytes) {
+            throw new RuntimeException("Truncated snapshot: " + count + " " + what + " in " + left[0] + " bytes");
+        }
+        return count;
+    }
+
+    private static void writeName(DataOutputStream out, Entity e) throws IOException {
+        byte[] name = e.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+    }
+
+    private static String readName(DataInputStream in, long[] left) throws IOException {
+        int length = in.readInt();
+        left[0] -= 4;
+        if(length < 0 || length > left[0]) {
+            throw new RuntimeException("Truncated snapshot: a name of " + length + " bytes in " + left[0]);
+        }
+        byte[] name = new byte[length];
+        in.readFully(name);
+        left[0] -= length;
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,160 @@
+import org.junit.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class SnapshotTests {
+
+    private MBTA mbta;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        mbta = new MBTA();
+        file = Files.createTempFile("snapshot", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mbta.reset();
+        Files.deleteIfExists(file);
+    }
+
+    private void loadTransfers() {
+        TestFixtures.loadTransfers(mbta);
+    }
+
+    /* a snapshot read back from its file restores the same state */
+    @Test
+    public void testRoundTrip() throws IOException {
+        loadTransfers();
+        Train red = Train.make("red");
+        Passenger alice = Passenger.make("Alice");
+        Passenger bob = Passenger.make("Bob");
+        mbta.boardPassenger(red, alice, Station.make("Davis"));
+        mbta.moveTrain(red, Station.make("Davis"), Station.make("Harvard"));
+        mbta.moveTrain(red, Station.make("Harvard"), Station.make("Kendall"));
+        mbta.snapshot(3).write(file);
+
+        mbta.reset();
+        loadTransfers();
+        Snapshot snapshot = Snapshot.read(file);
+        assert(snapshot.events == 3);
+        mbta.restore(snapshot);
+        assert(mbta.getTCurrStation(red).equals(Station.make("Kendall")));
+        assert(mbta.getTrainAtSta(Station.make("Kendall")).equals(red));
+        assert(mbta.getStaAvailability(Station.make("Davis")));
+        assert(mbta.getTNextStation(red).equals(Station.make("Park")));
+        assert(mbta.isPassengerOnTrain(alice).equals(red) && mbta.getPassengersOnTrain(red).contains(alice));
+        assert(!mbta.getStartingStation(alice).contains(alice));
+        assert(mbta.getStartingStation(bob).contains(bob) && mbta.isPassengerOnTrain(bob) == null);
+        assert(mbta.snapshot(3).trains.equals(snapshot.trains));
+    }
+
+    /* a discrete run resumed from one of its checkpoints logs a suffix that verifies from it */
+    @Test
+    public void testResume() throws IOException {
+        loadTransfers();
+        Log full = new Log(false);
+        DiscreteSim.run(mbta, full, new DiscreteSim.Checkpoints(0, 5, file));
+        full.close();
+        Snapshot checkpoint = Snapshot.read(file);
+        /* each checkpoint comes after five events and the digest logged with it */
+        assert(checkpoint.events > 0 && checkpoint.events % 6 == 0 && checkpoint.events <= full.events().size());
+        assert(full.events().get((int) checkpoint.events - 1).equals(new DigestEvent(checkpoint.digest())));
+
+        mbta.reset();
+        loadTransfers();
+        mbta.restore(checkpoint);
+        Log suffix = new Log(false);
+        DiscreteSim.run(mbta, suffix);
+        suffix.close();
+
+        mbta.reset();
+        loadTransfers();
+        Verify.verify(mbta, checkpoint, suffix.events().iterator());
+        /* the full log's own suffix verifies from it too */
+        mbta.reset();
+        loadTransfers();
+        List<Event> rest = full.events().subList((int) checkpoint.events, full.events().size());
+        Verify.verify(mbta, checkpoint, rest.iterator());
+    }
+
+    /* windows between checkpoints verify on their own, and a swapped pair of events is pinned to its window */
+    @Test(timeout = 10000)
+    public void testWindows() throws IOException {
+        Path dir = Files.createTempDirectory("checkpoints");
+        Path logFile = dir.resolve("log.json");
+        loadTransfers();
+        Log log = new Log(false);
+        DiscreteSim.run(mbta, log, new DiscreteSim.Checkpoints(0, 4, null, dir));
+        log.close();
+        List<Event> events = log.events();
+        long[] checkpoints = WindowVerify.checkpoints(dir);
+        assert(checkpoints.length >= 2);
+        Supplier<MBTA> configured = () -> {
+            MBTA fresh = new MBTA();
+            TestFixtures.loadTransfers(fresh);
+            return fresh;
+        };
+        writeLog(logFile, events);
+        WindowVerify.verify(configured, logFile, dir, 2);
+
+        /* swap the two events right after the second checkpoint */
+        int at = (int) checkpoints[1];
+        Collections.swap(events, at, at + 1);
+        writeLog(logFile, events);
+        try {
+            WindowVerify.verify(configured, logFile, dir, 2);
+            assert(false);
+        } catch(RuntimeException e) {
+            assert(e.getMessage().startsWith("Event " + at + " ") || e.getMessage().startsWith("Event " + (at + 1) + " "));
+        }
+        try(Stream<Path> files = Files.list(dir)) {
+            for(Path f : files.toList()) Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    private static void writeLog(Path file, List<Event> events) throws IOException {
+        LogSink sink = LogJson.writer(Files.newBufferedWriter(file));
+        sink.write(events);
+        sink.close();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testWrongConfig() {
+        loadTransfers();
+        Snapshot snapshot = mbta.snapshot(0);
+        mbta.reset();
+        mbta.addLine("red", List.of("Davis", "Harvard"));
+        mbta.restore(snapshot);
+    }
+
+    /* counts and name lengths the file can't hold fail as truncated, before anything is allocated */
+    @Test
+    public void testCorrupt() throws IOException {
+        loadTransfers();
+        mbta.snapshot(0).write(file);
+        byte[] original = Files.readAllBytes(file);
+        /* the train count, then the first train's name length */
+        for(long[] bad : new long[][] { { 16, -1 }, { 16, Integer.MAX_VALUE }, { 20, -3 }, { 20, Integer.MAX_VALUE } }) {
+            Files.write(file, original);
+            try(RandomAccessFile f = new RandomAccessFile(file.toFile(), "rw")) {
+                f.seek(bad[0]);
+                f.writeInt((int) bad[1]);
+            }
+            try {
+                Snapshot.read(file);
+                assert(false);
+            } catch(RuntimeException e) {
+                assert(e.getMessage().startsWith("Truncated snapshot"));
+            }
+        }
+    }
+}
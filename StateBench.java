@@ -0,0 +1,63 @@
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/*
+ *   Benchmark for the SimState backends: a DiscreteSim run and a Verify.verify replay of its
+ *   log (2M events by default) with SimState.maps() and with SimState.arrays(). Reports wall
+ *   time and bytes allocated per event by the running thread, for the second of two runs of
+ *   each, from the JVM's per-thread allocation counters.
+ *
+ *   Passengers shuttle back and forth between two stations of their line, so every event
+ *   touches the store: moves update a train's index and direction, and deboards a
+ *   passenger's journey index.
+ *
+ *   usage: java StateBench [events]
+ */
+public class StateBench {
+
+    private static final int LINES = 8;
+    private static final int STATIONS_PER_LINE = 10;
+    private static final int PASSENGERS = 1_000;
+
+    public static void main(String[] args) {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        int legs = (int) Math.max(1, events / (2L * PASSENGERS));
+        System.out.printf("%-8s %12s %14s %12s %14s%n", "store", "sim (ms)", "sim (B/event)", "verify (ms)", "verify (B/ev)");
+        for(String store : List.of("maps", "arrays")) {
+            long[] result = null;
+            for(int i = 0; i < 2; i++) result = run(store, legs);
+            System.out.printf("%-8s %12d %14.1f %12d %14.1f%n", store, result[0], (double) result[1] / result[4],
+                    result[2], (double) result[3] / result[4]);
+        }
+    }
+
+    /* sim ms, sim bytes, verify ms, verify bytes, events */
+    private static long[] run(String store, int legs) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MBTA mbta = Bench.network(state(store), LINES, STATIONS_PER_LINE, PASSENGERS, legs);
+        Log log = new Log(false);
+        System.gc();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        DiscreteSim.run(mbta, log);
+        long simMs = (System.nanoTime() - start) / 1_000_000;
+        long simBytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+        List<Event> events = log.events();
+        log.close();
+        mbta.reset();
+
+        mbta = Bench.network(state(store), LINES, STATIONS_PER_LINE, PASSENGERS, legs);
+        System.gc();
+        allocated = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        Verify.verify(mbta, events.iterator());
+        long verifyMs = (System.nanoTime() - start) / 1_000_000;
+        long verifyBytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+        mbta.reset();
+        return new long[] { simMs, simBytes, verifyMs, verifyBytes, events.size() };
+    }
+
+    private static SimState state(String store) {
+        return store.equals("arrays") ? SimState.arrays() : SimState.maps();
+    }
+}
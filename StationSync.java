@@ -0,0 +1,62 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ *   The lock of one station, the conditions on it and its Occupancy, created once per
+ *   station by MBTA.setUpLocks and looked up by the station's id, so threads reach them
+ *   without hashing or allocating.
+ *   boarders(t) - passengers wait on this to board line t here
+ *   riders(t) - passengers on train t wait on this to get off here
+ *   departure - the train at the station waits on this while it dwells; passengers signal
+ *   it after boarding/deboarding so the SimClock can decide whether to depart
+ *
+ *   An arrival of t wakes only boarders(t) and riders(t), not every passenger at or headed
+ *   for the station. The per-line conditions are made by serve while lines are added, before
+ *   any simulation thread starts.
+ */
+public final class StationSync {
+
+    public final ReentrantLock lock;
+    public final Condition departure;
+    // which train is at the station and which are waiting to enter it
+    public final Occupancy occupancy;
+
+    // indexed by train id, null for lines not serving the station
+    private Condition[] boarders = new Condition[0];
+    private Condition[] riders = new Condition[0];
+
+    public StationSync() {
+        lock = new ReentrantLock();
+        departure = lock.newCondition();
+        occupancy = new Occupancy();
+    }
+
+    /* makes the conditions for line t, which serves this station */
+    public void serve(Train t) {
+        int id = t.id();
+        if(id >= boarders.length) {
+            int length = Math.max(Math.max(Train.count(), id + 1), boarders.length * 2);
+            boarders = Arrays.copyOf(boarders, length);
+            riders = Arrays.copyOf(riders, length);
+        }
+        if(boarders[id] == null) {
+            boarders[id] = lock.newCondition();
+            riders[id] = lock.newCondition();
+        }
+    }
+
+    public Condition boarders(Train t) {
+        return boarders[t.id()];
+    }
+
+    public Condition riders(Train t) {
+        return riders[t.id()];
+    }
+
+    /* wakes the passengers waiting for t here; call holding the lock */
+    public void arrived(Train t) {
+        boarders[t.id()].signalAll();
+        riders[t.id()].signalAll();
+    }
+}
@@ -0,0 +1,16 @@
+import java.util.List;
+
+/* configs shared by the test classes */
+public class TestFixtures {
+
+    /* three lines crossing at Park, Downtown Crossing and North Station; Carol and Dan change lines */
+    public static void loadTransfers(MBTA mbta) {
+        mbta.addLine("red", List.of("Davis", "Harvard", "Kendall", "Park", "Downtown Crossing", "South Station"));
+        mbta.addLine("orange", List.of("Ruggles", "Back Bay", "Downtown Crossing", "State", "North Station"));
+        mbta.addLine("green", List.of("Tufts", "North Station", "Government Center", "Park", "Copley"));
+        mbta.addJourney("Alice", List.of("Davis", "Kendall"));
+        mbta.addJourney("Bob", List.of("Park", "Copley"));
+        mbta.addJourney("Carol", List.of("Ruggles", "Downtown Crossing", "Davis"));
+        mbta.addJourney("Dan", List.of("North Station", "Park", "South Station"));
+    }
+}
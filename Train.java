@@ -1,19 +1,27 @@
-import java.util.HashMap;
-import java.util.Map;
-
 public class Train extends Entity {
 
-    private static final Map<String, Train> trains = new HashMap<>();
+    private static final Registry<Train> trains = new Registry<>(Train::new);
 
-    private Train(String name) {
-        super(name);
+    private Train(String name, int id) {
+        super(name, id);
     }
 
     public static Train make(String name) {
-        if(!trains.containsKey(name)) {
-            trains.put(name, new Train(name));
-        }
-        return trains.get(name);
+        return trains.make(name);
+    }
+
+    public static Train byId(int id) {
+        return trains.get(id);
+    }
+
+    /* length for an array indexed by Train id */
+    public static int count() {
+        return trains.size();
+    }
+
+    /* makes room for n more Trains, see Registry.reserve */
+    public static void reserve(int n) {
+        trains.reserve(n);
     }
 
     public static void clearCache() {
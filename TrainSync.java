@@ -0,0 +1,71 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ *   Where a train with nothing to do waits, made once per line by MBTA.addLine.
+ *
+ *   A train is idle when nobody rides it, no passenger waits to board it and no train is
+ *   queued for the station it holds. An idle train parks here instead of shuttling along its
+ *   line: a shuttling train never blocks, so on virtual threads it would keep a carrier that
+ *   the passengers it is waiting for need. Passengers count themselves in while they wait to
+ *   board, and a train that queues for the station this train holds nudges it (see
+ *   Occupancy.claim); either wakes it.
+ *
+ *   Boarders count themselves out only after boarding, and under the lock, so a train that
+ *   finds none waiting also sees everyone who has boarded among its riders.
+ */
+public final class TrainSync {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wanted = lock.newCondition();
+    // passengers waiting to board the train
+    private int boarders;
+    // set when a train queues for the train's station, cleared when the train next idles
+    private boolean nudged;
+
+    /* a passenger starts waiting to board the train */
+    public void boarderWaits() {
+        lock.lock();
+        try {
+            boarders++;
+            wanted.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* the passenger has boarded, or given up */
+    public void boarderDone() {
+        lock.lock();
+        try {
+            boarders--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* another train wants the station the train holds */
+    public void nudge() {
+        lock.lock();
+        try {
+            nudged = true;
+            wanted.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* called by train t at station s between moves; returns once t has something to do */
+    public void idle(MBTA mbta, Train t, Station s) throws InterruptedException {
+        Occupancy at = mbta.getStationSync(s).occupancy;
+        lock.lock();
+        try {
+            while(boarders == 0 && !nudged && mbta.getPassengersOnTrain(t).isEmpty() && !at.hasWaiters()) {
+                wanted.await();
+            }
+            nudged = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
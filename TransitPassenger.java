@@ -1,18 +1,17 @@
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-
 public class TransitPassenger implements TransitThread {
 
     private Passenger p;
     private MBTA mbta;
     private Log log;
     private Station curr;
+    private final SimMetrics metrics;
 
     public TransitPassenger(Passenger p, MBTA mbta, Log log, Station curr) {
         this.p = p;
         this.mbta = mbta;
         this.log = log;
         this.curr = curr;
+        metrics = mbta.metrics();
     }
 
     @Override
@@ -35,74 +34,79 @@ public class TransitPassenger implements TransitThread {
                 }
                 curr = next;
             }
-        } catch (InterruptedException | RuntimeException e) {
+        } catch (InterruptedException e) {
+            /* the run is being stopped, e.g. by the Watchdog; nothing went wrong here */
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
             System.out.println(e.getMessage());
             Thread.currentThread().interrupt();
         }
     }
 
     private void waitForEnboard(Station next, Train t) throws InterruptedException {
-        Lock currLock = mbta.getStationLock(curr);
-        Condition pCondition = mbta.getPConditionAtS(curr);
-        currLock.lock();
+        /* keeps t from idling (see TrainSync) until this passenger is on board */
+        TrainSync waitingFor = mbta.getTrainSync(t);
+        waitingFor.boarderWaits();
+        try {
+            waitForTrain(t);
+        } finally {
+            waitingFor.boarderDone();
+        }
+    }
+
+    private void waitForTrain(Train t) throws InterruptedException {
+        StationSync sync = mbta.getStationSync(curr);
+        long arrived = System.nanoTime();
+        sync.lock.lock();
+        metrics.passengerLockWait.record(System.nanoTime() - arrived);
         try {
             // System.out.println(p + " locks " + curr + " in waitForEnboard");
+            int woken = 0;
             while(mbta.getTrainAtSta(curr) == null || !mbta.getTrainAtSta(curr).equals(t)) {
                 // System.out.println(p + " unlocks " + curr + " going into await");
-                pCondition.await();
+                sync.boarders(t).await();
+                woken++;
             }
+            counted(woken);
             log.passenger_boards(p, t, curr);
             mbta.boardPassenger(t, p, curr);
-        } catch (InterruptedException e) {
-            System.err.println("TransitPassenger: Something went wrong when boarding");
+            metrics.passengerWait.record(System.nanoTime() - arrived);
+            /* lets the dwelling train re-check whether it can depart */
+            sync.departure.signalAll();
         } finally {
-            currLock.unlock();
+            sync.lock.unlock();
             // System.out.println(p + " unlocks " + curr + " after boarding");
         }
     }
 
     private void waitToDeboard(Train t, Station next) throws InterruptedException {
-        Lock nextLock = mbta.getStationLock(next);
-        Condition pCondition = mbta.getPConditionAtS(next);
-        nextLock.lock();
+        StationSync sync = mbta.getStationSync(next);
+        long start = System.nanoTime();
+        sync.lock.lock();
+        metrics.passengerLockWait.record(System.nanoTime() - start);
         try {
             // System.out.println(p + " locks " + curr);
+            int woken = 0;
             while(!mbta.getTCurrStation(t).equals(next)) {
                 // System.out.println(p + " unlocks " + curr + " going into await");
-                pCondition.await();
+                sync.riders(t).await();
+                woken++;
             }
+            counted(woken);
             log.passenger_deboards(p, t, next);
             mbta.deboardPassenger(t, p, next);
-        } catch (InterruptedException e) {
-            System.err.println("TransitPassenger: Something went wrong when boarding off");
+            sync.departure.signalAll();
         } finally {
-            nextLock.unlock();
+            sync.lock.unlock();
             // System.out.println(p + " unlocks " + curr + " after deboarding");
         }
     }
 
-    /* while(!mbta.getTrainAtSta(curr).equals(nextT)) {
-            curr.awaitTrains();
-            Train t = mbta.getTrainAtSta(curr);
-            if(t == null) return;
-            try {
-                BoardEvent boardP = new BoardEvent(p, t, curr);
-                boardP.replayAndCheck(mbta);
-                log.passenger_boards(p, t, curr);
-            } catch (RuntimeException e) {
-                // passenger shouldn't board the current train, continue waiting
-            }
-    } */
-
-    /* while(!mbta.getTCurrStation(t).equals(next)) {
-            // tThread.waitForNext();
-            curr = mbta.getTCurrStation(t);
-            try {
-                DeboardEvent deboardP = new DeboardEvent(p, t, curr);
-                deboardP.replayAndCheck(mbta);
-                log.passenger_deboards(p, t, curr);
-            } catch (RuntimeException e) {
-                // passenger shouldn't get off the train at this station, continue waiting
-            }
-    } */
+    /* every wakeup but the last found the passenger still unable to act */
+    private void counted(int woken) {
+        if(woken > 0) {
+            metrics.wakeups.add(woken);
+            metrics.spurious.add(woken - 1);
+        }
+    }
 }
@@ -1,110 +1,82 @@
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 public class TransitTrain implements TransitThread {
 
     private final Train t;
     private final MBTA mbta;
     private final Log log;
+    private final SimClock clock;
+    private final SimMetrics metrics;
+    private final TrainSync sync;
+    // wakes the idle train holding a station this one queues for
+    private final Consumer<Train> nudge;
 
     private Station curr;
 
     public TransitTrain(Train t, MBTA mbta, Log log, Station tStart) {
+        this(t, mbta, log, tStart, SimClock.real());
+    }
+
+    public TransitTrain(Train t, MBTA mbta, Log log, Station tStart, SimClock clock) {
         this.t = t;
         this.mbta = mbta;
         this.log = log;
+        this.clock = clock;
+        metrics = mbta.metrics();
+        sync = mbta.getTrainSync(t);
+        nudge = holder -> mbta.getTrainSync(holder).nudge();
         curr = tStart;
     }
 
     @Override
     public void run() {
         try {
-            Lock currLock = mbta.getStationLock(curr);
-            currLock.lock();
+            StationSync currSync = mbta.getStationSync(curr);
             while(!Thread.currentThread().isInterrupted()) {
                 // System.out.println("Train " + t + " is at " + curr);
                 Station next = mbta.getTNextStation(t);
-                // System.out.println("Train " + t + " locks " + curr);
-
-                /* tell passengers to board off/board on depending on their state */
-                Condition pCondition = mbta.getPConditionAtS(curr);
-                pCondition.signalAll();
-
-                /* releases lock on current station before going into waiting state */
-                currLock.unlock();
-                // System.out.println("Train " + t + " unlocks " + curr + " going into sleep");
+                StationSync nextSync = mbta.getStationSync(next);
+                /* parks while nobody rides, waits for or is queued behind this train */
+                sync.idle(mbta, t, curr);
 
-                /* wait for passenger threads to do their thing */
-                Thread.sleep(10);
-                // System.out.println("Train " + t + " wakes up");
+                lockTimed(currSync);
+                try {
+                    /* tell passengers boarding or getting off this train here to do so */
+                    currSync.arrived(t);
+                    /* wait for passenger threads to do their thing, the clock releases the lock meanwhile */
+                    long dwelt = System.nanoTime();
+                    clock.dwell(mbta, t, curr);
+                    metrics.dwell.record(System.nanoTime() - dwelt);
+                } finally {
+                    currSync.lock.unlock();
+                }
 
-                /* checks availability for the next station */
-                Lock nextLock = mbta.getStationLock(next);
-                nextLock.lock();
-                Condition tConditionNext = mbta.getTConditionAtS(next);
+                /* waits its turn for the next station, without any lock if it is free */
+                long waited = System.nanoTime();
+                nextSync.occupancy.claim(t, nudge);
+                metrics.stationWait.record(System.nanoTime() - waited);
+                /* moves under the current station's lock, so no passenger can board here after
+                   the move has been logged */
+                lockTimed(currSync);
                 try {
-                    // System.out.println("Train " + t + " locks " + next);
-                    while(mbta.getTrainAtSta(next) != null) {
-                        // System.out.println("Train " + t + " unlocks " + next);
-                        tConditionNext.await();
-                    }
-                    /* train now has the lock for the next station */
                     log.train_moves(t, curr, next);
                     mbta.moveTrain(t, curr, next);
-                    /* notifies all trains waiting to enter the current station */
-                    currLock.lock();
-                    try {
-                        // System.out.println("Train " + t + " locks " + curr);
-                        Condition tConditionCurr = mbta.getTConditionAtS(curr);
-                        tConditionCurr.signalAll();
-                    } finally {
-                        // System.out.println("Train " + t + " unlocks on " + curr);
-                        currLock.unlock();
-                    }
-                    curr = next;
-                    currLock = mbta.getStationLock(next);
-                } catch (InterruptedException e) {
-
+                } finally {
+                    currSync.lock.unlock();
                 }
+                /* lets the next train waiting for the current station in */
+                currSync.occupancy.release(t);
+                curr = next;
+                currSync = nextSync;
             }
         } catch (InterruptedException e) {
             return;
         }
     }
 
-    /* subscribes passengers to listen to the next station this train arrives at
-    public void waitForNext() throws InterruptedException {
-        lock.lock();
-        try {
-            staArrival.await();
-        } finally {
-            lock.unlock();
-        }
+    private void lockTimed(StationSync sync) {
+        long start = System.nanoTime();
+        sync.lock.lock();
+        metrics.trainLockWait.record(System.nanoTime() - start);
     }
-
-    wakes up all passengers on train upon arriving at a new station
-    public void notifyPassengers() throws InterruptedException {
-        lock.lock();
-        try {
-            staArrival.signalAll();
-        } finally {
-            lock.unlock();
-        }
-    } */
-
-    /* curr = mbta.getTCurrStation(t);
-        next = mbta.getTNextStation(t);
-        curr.claimOrWait();
-        while(!Thread.currentThread().isInterrupted()) {
-            notifyPassengers();
-            curr.signalPassengersAtSta();
-            Thread.sleep(10);
-            next.claimOrWait();
-            curr.notifyDeparture();
-            mbta.moveTrain(t, curr, next);
-            log.train_moves(t, curr, next);
-            curr = next;
-            next = mbta.getTNextStation(t);
-        }
-    */
 }
@@ -1,6 +1,8 @@
 import org.junit.*;
 import org.junit.runners.MethodSorters;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @FixMethodOrder( MethodSorters.NAME_ASCENDING )
@@ -212,6 +214,36 @@ public class VerifierTests {
         assert(mbta.getPNextStation(Brian) == null);
     }
 
+    /*
+     *   streaming verification names the first bad event and reads nothing after it; uses
+     *   simulations of its own, leaving the one the tests above share alone
+     */
+    @Test
+    public void test15StreamStopsAtFirstFailure() {
+        MBTA transfers = new MBTA();
+        TestFixtures.loadTransfers(transfers);
+        Log log = new Log(false);
+        DiscreteSim.run(transfers, log);
+        log.close();
+        List<Event> events = new ArrayList<>(log.events());
+        events.set(5, new MoveEvent(Train.make("red"), Station.make("Copley"), Station.make("Park")));
+        MBTA replay = new MBTA();
+        TestFixtures.loadTransfers(replay);
+        Iterator<Event> it = events.iterator();
+        int[] read = new int[1];
+        Iterator<Event> counting = new Iterator<>() {
+            public boolean hasNext() { return it.hasNext(); }
+            public Event next() { read[0]++; return it.next(); }
+        };
+        try {
+            Verify.verify(replay, counting);
+            assert(false);
+        } catch (RuntimeException e) {
+            assert(e.getMessage().startsWith("Event 5 "));
+        }
+        assert(read[0] == 6);
+    }
+
     @AfterClass
     public static void tearDown() throws Exception {
         mbta.checkEnd();
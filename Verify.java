@@ -1,26 +1,106 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 public class Verify {
 
     public static void verify(MBTA mbta, Log log) {
+        verify(mbta, log.events().iterator());
+    }
+
+    /*
+     *   Replays events as the iterator produces them, so a lazily read log is checked in
+     *   constant memory. Stops at the first event that fails, reporting its index (from 0).
+     */
+    public static void verify(MBTA mbta, Iterator<Event> events) {
         mbta.checkStart();
-        for (Event e : log.events()) {
-            e.replayAndCheck(mbta);
-        }
+        replay(mbta, events, 0);
+        mbta.checkEnd();
+    }
+
+    /*
+     *   Checks a run from a checkpoint: puts the simulation where from has it, then replays
+     *   the events logged after it, numbered on from from.events.
+     */
+    public static void verify(MBTA mbta, Snapshot from, Iterator<Event> events) {
+        mbta.restore(from);
+        replay(mbta, events, from.events);
         mbta.checkEnd();
     }
 
-    public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 2) {
-            System.out.println("usage: ./verify <config file> <log file>");
+    /* replays and checks events, the first being event i of the log */
+    static void replay(MBTA mbta, Iterator<Event> events, long i) {
+        while (events.hasNext()) {
+            Event e = events.next();
+            try {
+                e.replayAndCheck(mbta);
+            } catch (RuntimeException ex) {
+                throw new RuntimeException("Event " + i + " (" + e + ") failed: " + ex.getMessage(), ex);
+            }
+            i++;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean parallel = false;
+        boolean arrayState = false;
+        String from = null;
+        String windows = null;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                parallel = true;
+            } else if (args[i].equals("--array-state")) {
+                arrayState = true;
+            } else if (args[i].equals("--from") && i + 1 < args.length) {
+                from = args[++i];
+            } else if (args[i].equals("--windows") && i + 1 < args.length) {
+                windows = args[++i];
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            System.out.println("usage: ./verify [--parallel] [--array-state] [--from <snapshot> | --windows <checkpoint dir>] <config file> <log file>");
+            System.out.println("       with --from, the log holds only the events after the snapshot;");
+            System.out.println("       --windows checks the log between each pair of checkpoints in parallel (see WindowVerify)");
             System.exit(1);
         }
 
-        MBTA mbta = new MBTA();
-        mbta.loadConfig(args[0]);
-        Reader r = new BufferedReader(new FileReader(args[1]));
-        Log log = LogJson.fromJson(r).toLog();
-        verify(mbta, log);
+        Path file = Path.of(files.get(1));
+        if (windows != null) {
+            /* every worker loads its own */
+            boolean arrays = arrayState;
+            WindowVerify.verify(() -> {
+                MBTA configured = new MBTA(arrays ? SimState.arrays() : SimState.maps());
+                configured.loadConfig(files.get(0));
+                return configured;
+            }, file, Path.of(windows), Runtime.getRuntime().availableProcessors());
+            return;
+        }
+        MBTA mbta = new MBTA(arrayState ? SimState.arrays() : SimState.maps());
+        mbta.loadConfig(files.get(0));
+        System.err.printf("Loaded %s in %d ms%n", files.get(0), mbta.metrics().loadNanos / 1_000_000);
+        if (from != null) {
+            Snapshot snapshot = Snapshot.read(Path.of(from));
+            try (EventReader r = BinLog.isBinary(file) ? BinLog.reader(file) : LogJson.reader(Files.newBufferedReader(file))) {
+                verify(mbta, snapshot, r);
+            }
+            return;
+        }
+        if (BinLog.isBinary(file)) {
+            if (parallel) {
+                ParallelVerify.verify(mbta, file);
+            } else {
+                BinVerify.verify(mbta, file);
+            }
+            return;
+        }
+        if (parallel) {
+            System.out.println("--parallel needs a binary log; verifying sequentially");
+        }
+        try (EventReader r = LogJson.reader(Files.newBufferedReader(file))) {
+            verify(mbta, r);
+        }
     }
 }
@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ *   Watches a threaded run for trains stuck waiting on each other and for runs that stop
+ *   making progress, and aborts the run when it finds either.
+ *
+ *   Every PERIOD_MILLIS it samples each station's Occupancy, the train at it and the trains
+ *   queued for it, and builds the wait-for graph: a queued train waits for the train at the
+ *   station. A train waits for one station at a time, so following each train's one edge finds
+ *   any cycle. The trains on a cycle each hold a station the next one needs and none can move,
+ *   but one sample may mix moments of a moving system, so only a cycle seen by two samples in
+ *   a row counts as a deadlock.
+ *
+ *   Progress is a passenger boarding or getting off, seen as the log's events reach this sink;
+ *   trains shuttling back and forth without anyone riding them is not progress. After
+ *   stallMillis without any, the run is taken to be livelocked (or starved) and aborted.
+ */
+public class Watchdog implements LogSink {
+
+    public static final long PERIOD_MILLIS = 50;
+    // default stall limit for Sim.run_sim, far above any gap between passenger events at the
+    // real clock's dwell
+    public static final long STALL_MILLIS = 10_000;
+
+    private final MBTA mbta;
+    private final long stallMillis;
+    private final List<Station> stations;
+
+    private volatile long lastProgress;
+    private volatile String failure;
+    private Thread thread;
+
+    public Watchdog(MBTA mbta, long stallMillis) {
+        this.mbta = mbta;
+        this.stallMillis = stallMillis;
+        Set<Station> all = new LinkedHashSet<>();
+        for(List<Station> line : mbta.lines.values()) all.addAll(line);
+        stations = new ArrayList<>(all);
+        lastProgress = System.nanoTime();
+    }
+
+    /* starts watching; abort is run once, on the watchdog's thread, if the run fails */
+    public synchronized void start(Runnable abort) {
+        lastProgress = System.nanoTime();
+        thread = new Thread(() -> watch(abort), "watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if(thread == null) return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /* why the run was aborted, or null if it wasn't */
+    public String failure() {
+        return failure;
+    }
+
+    /* how long it has been since a passenger last boarded or got off */
+    public long millisSinceProgress() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastProgress);
+    }
+
+    @Override
+    public void write(List<Event> batch) {
+        for(Event e : batch) {
+            if(e instanceof BoardEvent || e instanceof DeboardEvent) {
+                lastProgress = System.nanoTime();
+                return;
+            }
+        }
+    }
+
+    private void watch(Runnable abort) {
+        String suspect = null;
+        while(true) {
+            try {
+                Thread.sleep(PERIOD_MILLIS);
+            } catch(InterruptedException e) {
+                return;
+            }
+            String deadlock = findDeadlock();
+            if(deadlock != null && deadlock.equals(suspect)) {
+                fail("Deadlock: " + deadlock, abort);
+                return;
+            }
+            suspect = deadlock;
+            long idle = millisSinceProgress();
+            if(idle > stallMillis) {
+                fail("No progress: no passenger boarded or got off for " + idle + " ms", abort);
+                return;
+            }
+        }
+    }
+
+    private void fail(String why, Runnable abort) {
+        failure = why;
+        System.err.println("Watchdog: " + why + ", aborting the run");
+        abort.run();
+    }
+
+    /* a cycle in a sample of the wait-for graph, described starting from its lowest train id, or null */
+    String findDeadlock() {
+        Map<Train, Station> waitsAt = new HashMap<>();
+        Map<Station, Train> occupants = new HashMap<>();
+        for(Station s : stations) {
+            Occupancy o = mbta.getStationSync(s).occupancy;
+            Train holder = o.occupant();
+            if(holder == null) continue;
+            occupants.put(s, holder);
+            for(Train w : o.waiting()) {
+                if(!w.equals(holder)) waitsAt.put(w, s);
+            }
+        }
+        Set<Train> cleared = new HashSet<>();
+        for(Train start : waitsAt.keySet()) {
+            /* walk the single out-edges until a dead end, a train already cleared, or a repeat */
+            List<Train> path = new ArrayList<>();
+            Train t = start;
+            while(t != null && !cleared.contains(t) && !path.contains(t)) {
+                path.add(t);
+                Station s = waitsAt.get(t);
+                t = s == null ? null : occupants.get(s);
+            }
+            if(t != null && path.contains(t)) {
+                return describe(path.subList(path.indexOf(t), path.size()), waitsAt, occupants);
+            }
+            cleared.addAll(path);
+        }
+        return null;
+    }
+
+    private static String describe(List<Train> cycle, Map<Train, Station> waitsAt, Map<Station, Train> occupants) {
+        int first = 0;
+        for(int i = 1; i < cycle.size(); i++) {
+            if(cycle.get(i).id() < cycle.get(first).id()) first = i;
+        }
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < cycle.size(); i++) {
+            Train t = cycle.get((first + i) % cycle.size());
+            Station s = waitsAt.get(t);
+            if(i > 0) sb.append(", ");
+            sb.append(t).append(" waits for ").append(s).append(" held by ").append(occupants.get(s));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WatchdogTests {
+
+    private MBTA mbta;
+    private Log log;
+
+    @Before
+    public void setUp() {
+        Sim.clearThreads();
+        mbta = new MBTA();
+        log = new Log(false);
+    }
+
+    @After
+    public void tearDown() {
+        Sim.clearThreads();
+        mbta.reset();
+    }
+
+    /* the message run_sim fails with, or null if it finished */
+    private String runFailure(long stallMillis) {
+        try {
+            Sim.run_sim(mbta, log, Sim.Mode.PLATFORM, SimClock.logical(), stallMillis);
+            return null;
+        } catch(RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    /* two lines over the same stations in opposite orders meet head-on */
+    @Test(timeout = 5000)
+    public void testHeadOn() {
+        mbta.addLine("red", List.of("A", "B", "C", "D"));
+        mbta.addLine("green", List.of("D", "C", "B", "A"));
+        mbta.addJourney("Alice", List.of("A", "D"));
+        String failure = runFailure(Watchdog.STALL_MILLIS);
+        assert(failure != null && failure.startsWith("Deadlock: "));
+        assert(failure.contains("red waits for ") && failure.contains("green waits for "));
+    }
+
+    /* three lines around a triangle, each starting where the previous one is headed */
+    @Test(timeout = 5000)
+    public void testThreeCycle() {
+        mbta.addLine("a", List.of("X", "Y"));
+        mbta.addLine("b", List.of("Y", "Z"));
+        mbta.addLine("c", List.of("Z", "X"));
+        mbta.addJourney("Alice", List.of("X", "Y"));
+        String failure = runFailure(Watchdog.STALL_MILLIS);
+        /* the cycle is listed from whichever train was made first, ids being global */
+        assert(failure != null && failure.startsWith("Deadlock: "));
+        assert(failure.contains("a waits for Y held by b") && failure.contains("b waits for Z held by c")
+                && failure.contains("c waits for X held by a"));
+    }
+
+    /* lines crossing at stations they reach one at a time never wait on each other for long */
+    @Test(timeout = 10000)
+    public void testBenignTransfers() {
+        mbta.addLine("red", List.of("Davis", "Harvard", "Kendall", "Park", "Downtown Crossing"));
+        mbta.addLine("green", List.of("Tufts", "North Station", "Government Center", "Park", "Copley"));
+        mbta.addLine("orange", List.of("Oak Grove", "North Station", "State", "Downtown Crossing"));
+        mbta.addJourney("Alice", List.of("Davis", "Park", "Copley"));
+        mbta.addJourney("Bob", List.of("Tufts", "Park", "Downtown Crossing"));
+        mbta.addJourney("Carol", List.of("Oak Grove", "North Station", "Copley"));
+        assert(runFailure(Watchdog.STALL_MILLIS) == null);
+    }
+
+    /* nothing boards or gets off, so the stall limit is reached and abort runs once */
+    @Test(timeout = 5000)
+    public void testNoProgress() throws InterruptedException {
+        mbta.addLine("red", List.of("A", "B"));
+        Watchdog watchdog = new Watchdog(mbta, 200);
+        AtomicInteger aborts = new AtomicInteger();
+        watchdog.start(aborts::incrementAndGet);
+        while(watchdog.failure() == null) Thread.sleep(Watchdog.PERIOD_MILLIS);
+        watchdog.stop();
+        assert(watchdog.millisSinceProgress() >= 200);
+        assert(watchdog.failure().startsWith("No progress"));
+        assert(aborts.get() == 1);
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+ *   Verifies a log that DiscreteSim checkpointed into a directory (Checkpoints.dir), one window
+ *   at a time, the windows in parallel.
+ *
+ *   A checkpoint is a DigestEvent in the log followed by a Snapshot of the same state, kept
+ *   in the directory under the number of events before it. Window i runs from checkpoint i
+ *   (or the start of the log) up to checkpoint i + 1 and is checked on its own: the simulation
+ *   is restored from the snapshot, which must hash to the digest logged just before the
+ *   window, and the window's events are replayed, ending with the next digest, which checks
+ *   the state the window leaves behind. The last window also gets checkEnd. So the windows
+ *   pass together exactly when a replay from the start would, but a fault is found without
+ *   replaying anything before the checkpoint before it, and every window that has one is
+ *   named, not just the first.
+ *
+ *   The log is read once, in order, and each window is handed to a worker as soon as it is
+ *   complete, with at most two windows per worker in memory. Each worker keeps its own MBTA
+ *   loaded from the config, and restore moves it from window to window.
+ */
+public class WindowVerify {
+
+    // anchor: the event before the window; both it and from are null for the first
+    private record Window(long start, Event anchor, Snapshot from, List<Event> events) {}
+
+    // a worker's simulation and the state it was loaded in
+    private record Worker(MBTA mbta, Snapshot initial) {}
+
+    public static void verify(Supplier<MBTA> configured, Path log, Path dir, int threads) throws IOException {
+        long[] starts = checkpoints(dir);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> {
+            MBTA mbta = configured.get();
+            return new Worker(mbta, mbta.snapshot(0));
+        });
+        Semaphore inFlight = new Semaphore(2 * threads);
+        List<Future<?>> results = new ArrayList<>();
+        try(EventReader r = BinLog.isBinary(log) ? BinLog.reader(log) : LogJson.reader(Files.newBufferedReader(log))) {
+            long index = 0;
+            Event anchor = null;
+            for(int w = 0; w <= starts.length; w++) {
+                long end = w < starts.length ? starts[w] : Long.MAX_VALUE;
+                long start = index;
+                List<Event> events = new ArrayList<>();
+                while(index < end && r.hasNext()) {
+                    events.add(r.next());
+                    index++;
+                }
+                if(index < end && end != Long.MAX_VALUE) {
+                    throw new RuntimeException("Log ends at event " + index + ", before the checkpoint at " + end);
+                }
+                Snapshot from = w == 0 ? null : Snapshot.read(Snapshot.inDir(dir, start));
+                Window window = new Window(start, anchor, from, events);
+                if(!events.isEmpty()) anchor = events.getLast();
+                boolean last = w == starts.length;
+                inFlight.acquireUninterruptibly();
+                results.add(pool.submit(() -> {
+                    try {
+                        check(workers.get(), window, last);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        List<String> failures = new ArrayList<>();
+        for(Future<?> f : results) {
+            try {
+                f.get();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch(ExecutionException e) {
+                failures.add(e.getCause().getMessage());
+            }
+        }
+        if(!failures.isEmpty()) {
+            String more = failures.size() == 1 ? "" : " (and " + (failures.size() - 1) + " later windows of "
+                    + results.size() + " failed: " + String.join("; ", failures.subList(1, failures.size())) + ")";
+            throw new RuntimeException(failures.getFirst() + more);
+        }
+    }
+
+    private static void check(Worker worker, Window w, boolean last) {
+        MBTA mbta = worker.mbta();
+        /* the snapshot must be of the state the log had reached there */
+        if(w.from() != null && !(w.anchor() instanceof DigestEvent d && d.digest == w.from().digest())) {
+            throw new RuntimeException("Event " + (w.start() - 1) + " (" + w.anchor() + ") failed: the snapshot after it has digest "
+                    + Long.toHexString(w.from().digest()));
+        }
+        mbta.restore(w.from() == null ? worker.initial() : w.from());
+        Verify.replay(mbta, w.events().iterator(), w.start());
+        if(last) mbta.checkEnd();
+    }
+
+    /* the event counts the directory has snapshots at, in order */
+    static long[] checkpoints(Path dir) throws IOException {
+        try(Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.endsWith(".snap"))
+                    .mapToLong(n -> Long.parseLong(n.substring(0, n.length() - ".snap".length())))
+                    .filter(e -> e > 0)
+                    .sorted()
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/*
+ *   The MBTA lookups and moves, one call per op, on a 16-line network with 1000 passengers
+ *   set up once per fork. Calls cycle through the network's stations, passengers or trains.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class CallBenchmarks {
+
+    @Param({"mbta.getTrainAtSta", "mbta.NextTrainToBoard", "mbta.isRightTrain", "mbta.moveTrain"})
+    public String workload;
+
+    private IntFunction<Object> op;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        op = Workloads.setUp(workload);
+    }
+
+    @Benchmark
+    public Object call() {
+        /* kept non-negative, the ops index arrays with it */
+        i = (i + 1) & Integer.MAX_VALUE;
+        return op.apply(i);
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/*
+ *   Whole runs: 500k log appends and the drain, a LogJson round trip and Verify.verify of a
+ *   generated 100k-event log, and run_sim on synthetic networks, DISCRETE and on platform
+ *   threads with the logical clock. These use up their fixture, so each op gets a fresh one,
+ *   set up outside the timing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RunBenchmarks {
+
+    @Param({"log.append", "logjson.roundTrip", "verify.generated", "sim.discrete", "sim.threads"})
+    public String workload;
+
+    private IntFunction<Object> op;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        op = Workloads.setUp(workload);
+    }
+
+    @Benchmark
+    public Object run() {
+        return op.apply(0);
+    }
+}
@@ -0,0 +1,21 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.IntFunction;
+
+/* Benchmarks.setUp, which code in a package can reach only by reflection */
+final class Workloads {
+
+    private Workloads() {}
+
+    @SuppressWarnings("unchecked")
+    static IntFunction<Object> setUp(String workload) {
+        try {
+            return (IntFunction<Object>) Class.forName("Benchmarks").getMethod("setUp", String.class).invoke(null, workload);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException("Setting up " + workload + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Benchmarks is not on the classpath", e);
+        }
+    }
+}